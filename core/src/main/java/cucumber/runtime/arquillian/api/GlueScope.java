@@ -0,0 +1,41 @@
+package cucumber.runtime.arquillian.api;
+
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * How long a glue instance is used, glues without this annotation use the glueScope configuration (class by default).
+ * An instance is never used by two threads at the same time and is reset (see Resettable) at the end of its scope.
+ */
+@Inherited
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface GlueScope {
+    Scope value();
+
+    enum Scope {
+        /**
+         * instance of the test class run, reset after each scenario: the glue must be Resettable
+         */
+        SCENARIO,
+
+        /**
+         * instance of the test class run, reset after each feature: the glue must be Resettable
+         */
+        FEATURE,
+
+        /**
+         * created and enriched for each test class run
+         */
+        CLASS,
+
+        /**
+         * created and enriched once then reused by the next test class runs of the deployment, reset between them
+         */
+        SUITE
+    }
+}
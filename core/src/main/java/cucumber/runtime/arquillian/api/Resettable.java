@@ -0,0 +1,6 @@
+package cucumber.runtime.arquillian.api;
+
+// glue whose instance is reused (see GlueScope): called at the end of each scope to clear the state of the run
+public interface Resettable {
+    void reset();
+}
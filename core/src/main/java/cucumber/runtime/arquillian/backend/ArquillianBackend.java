@@ -1,7 +1,5 @@
 package cucumber.runtime.arquillian.backend;
 
-import cucumber.api.java.After;
-import cucumber.api.java.Before;
 import cucumber.runtime.Backend;
 import cucumber.runtime.ClassFinder;
 import cucumber.runtime.CucumberException;
@@ -10,25 +8,31 @@ import cucumber.runtime.Glue;
 import cucumber.runtime.HookDefinition;
 import cucumber.runtime.StepDefinition;
 import cucumber.runtime.UnreportedStepExecutor;
-import cucumber.runtime.Utils;
+import cucumber.runtime.arquillian.api.GlueScope;
 import cucumber.runtime.arquillian.api.Lambda;
+import cucumber.runtime.arquillian.api.Resettable;
 import cucumber.runtime.arquillian.lifecycle.CucumberLifecycle;
+import cucumber.runtime.arquillian.reporter.MetricsReport;
 import cucumber.runtime.java.JavaBackend;
-import cucumber.runtime.java.StepDefAnnotation;
 import cucumber.runtime.snippets.FunctionNameGenerator;
 import cucumber.runtime.snippets.Snippet;
 import cucumber.runtime.snippets.SnippetGenerator;
 import gherkin.formatter.model.Step;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 import static cucumber.runtime.arquillian.shared.ClassLoaders.load;
@@ -41,13 +45,27 @@ public class ArquillianBackend extends JavaBackend implements Backend {
         JAVA, SCALA, UNKNOWN
     }
 
+    private static final Logger LOGGER = Logger.getLogger(ArquillianBackend.class.getName());
+
+    // suite scoped instances released by the test class runs, one per concurrent user, by deployment then glue class
+    private static final Map<String, Map<Class<?>, Queue<Object>>> SUITE_INSTANCES = new HashMap<String, Map<Class<?>, Queue<Object>>>();
+
     private SnippetGenerator snippetGenerator;
-    private final Map<Class<?>, Object> instances = new HashMap<Class<?>, Object>();
-    private final Collection<Class<?>> glues = new ArrayList<Class<?>>();
+    private final Map<Class<?>, GlueInstance> instances = new HashMap<Class<?>, GlueInstance>();
+    private final Collection<Class<?>> glues = new LinkedHashSet<Class<?>>();
+    private final GlueScope.Scope defaultScope;
+    private final String deployment; // id of the deployment the glues come from, key of the suite instances
+    private final boolean lazy; // instantiate glues when one of their steps or hooks is invoked
+    private final Map<GlueScope.Scope, Collection<Object>> scoped = new EnumMap<GlueScope.Scope, Collection<Object>>(GlueScope.Scope.class);
     private Glue glue;
     private GlueType glueType = GlueType.UNKNOWN;
+    private MetricsReport metrics; // null when disabled
 
     public ArquillianBackend() { // no-op constructor but we need to be JavaBackend for java8 integration
+        this(GlueScope.Scope.CLASS, "", false);
+    }
+
+    private ArquillianBackend(final GlueScope.Scope defaultScope, final String deployment, final boolean lazy) {
         super(null, new ClassFinder() {
             private final ClassLoader loader = Thread.currentThread().getContextClassLoader();
 
@@ -61,35 +79,150 @@ public class ArquillianBackend extends JavaBackend implements Backend {
                 return (Class<? extends T>) loader.loadClass(s);
             }
         });
+        this.defaultScope = defaultScope;
+        this.deployment = deployment;
+        this.lazy = lazy;
+        for (final GlueScope.Scope scope : GlueScope.Scope.values()) {
+            scoped.put(scope, new ArrayList<Object>());
+        }
     }
 
     public ArquillianBackend(final Collection<Class<?>> classes, final Class<?> clazz, final Object testInstance) {
-        this();
-        instances.put(clazz, testInstance);
+        this(classes, clazz, testInstance, GlueScope.Scope.CLASS, "", false);
+    }
+
+    public ArquillianBackend(final Collection<Class<?>> classes, final Class<?> clazz, final Object testInstance,
+                             final GlueScope.Scope defaultScope, final String deployment, final boolean lazy) {
+        this(defaultScope, deployment, lazy);
+        instances.put(clazz, GlueInstance.of(testInstance));
         glues.addAll(classes);
     }
 
     @Override
     public void loadGlue(final Glue glue, final List<String> gluePaths) {
+        final long start = System.nanoTime();
         super.loadGlue(glue, Collections.<String>emptyList());
         this.glue = glue;
-        for (final Object i : instances.values()) {
-            initLambda(i);
+        for (final GlueInstance i : instances.values()) {
+            initLambda(i.get());
         }
         initInstances();
         scan(); // dedicated scanning
+        if (metrics != null) {
+            metrics.record(MetricsReport.GLUE, "loadGlue", System.nanoTime() - start);
+        }
+    }
+
+    // set before the backend is given to a runtime since it loads the glues
+    public void setMetrics(final MetricsReport metrics) {
+        this.metrics = metrics;
     }
 
     private void initInstances() {
+        for (final Class<?> glueClass : glues) { // before creating any instance
+            final GlueScope.Scope scope = scope(glueClass);
+            if ((scope == GlueScope.Scope.SCENARIO || scope == GlueScope.Scope.FEATURE) && !Resettable.class.isAssignableFrom(glueClass)) {
+                throw new IllegalArgumentException(glueClass.getName() + " uses the " + scope.name().toLowerCase(Locale.ENGLISH)
+                        + " glue scope so it must implement " + Resettable.class.getName() + " to clear its state");
+            }
+        }
         for (final Class<?> glueClass : glues) {
-            final Object instance;
+            instances.put(glueClass, lazy && isLazy(glueClass) ? new LazyInstance(glueClass) : GlueInstance.of(create(glueClass)));
+        }
+    }
+
+    // glues registering their steps when created (lambdas, scala dsl) or without annotated methods are created eagerly
+    private static boolean isLazy(final Class<?> glueClass) {
+        if (Lambda.class.isAssignableFrom(glueClass) || GlueScanner.scan(glueClass).isEmpty()) {
+            return false;
+        }
+        try {
+            return !load("cucumber.api.scala.ScalaDsl").isAssignableFrom(glueClass);
+        } catch (final Exception e) {
+            return true;
+        }
+    }
+
+    private GlueScope.Scope scope(final Class<?> glueClass) {
+        final GlueScope annotation = glueClass.getAnnotation(GlueScope.class);
+        return annotation == null ? defaultScope : annotation.value();
+    }
+
+    private Object create(final Class<?> glueClass) {
+        final GlueScope.Scope scope = scope(glueClass);
+
+        Object instance = scope == GlueScope.Scope.SUITE ? acquire(glueClass) : null;
+        if (instance == null) {
+            final long start = System.nanoTime();
             try {
-                instance = initLambda(glueClass.newInstance());
+                instance = CucumberLifecycle.enrich(initLambda(glueClass.newInstance()));
             } catch (final Exception e) {
                 throw new IllegalArgumentException("Can't instantiate " + glueClass.getName(), e);
             }
+            if (metrics != null) {
+                metrics.record(MetricsReport.GLUE, glueClass.getName(), System.nanoTime() - start);
+            }
+        }
+
+        scoped.get(scope).add(instance);
+        return instance;
+    }
+
+    private Object acquire(final Class<?> glueClass) {
+        synchronized (SUITE_INSTANCES) {
+            final Map<Class<?>, Queue<Object>> pools = SUITE_INSTANCES.get(deployment);
+            final Queue<Object> pool = pools == null ? null : pools.get(glueClass);
+            return pool == null ? null : pool.poll();
+        }
+    }
+
+    // the suite instances of an undeployed deployment are dropped
+    public static void undeployed(final String deployment) {
+        synchronized (SUITE_INSTANCES) {
+            SUITE_INSTANCES.remove(deployment);
+        }
+    }
+
+    // end of the feature run by this backend
+    public void featureFinished() {
+        reset(GlueScope.Scope.FEATURE);
+    }
+
+    // end of the test class run: suite scoped instances are reset and made available to the next runs
+    public void release() {
+        for (final Object instance : scoped.get(GlueScope.Scope.SUITE)) {
+            try {
+                reset(instance);
+            } catch (final RuntimeException e) { // don't reuse it
+                LOGGER.log(Level.WARNING, "Can't reset " + instance.getClass().getName() + ", it will be recreated", e);
+                continue;
+            }
+            synchronized (SUITE_INSTANCES) {
+                Map<Class<?>, Queue<Object>> pools = SUITE_INSTANCES.get(deployment);
+                if (pools == null) {
+                    pools = new HashMap<Class<?>, Queue<Object>>();
+                    SUITE_INSTANCES.put(deployment, pools);
+                }
+                Queue<Object> pool = pools.get(instance.getClass());
+                if (pool == null) {
+                    pool = new LinkedList<Object>();
+                    pools.put(instance.getClass(), pool);
+                }
+                pool.add(instance);
+            }
+        }
+        scoped.get(GlueScope.Scope.SUITE).clear();
+    }
+
+    private void reset(final GlueScope.Scope scope) {
+        for (final Object instance : scoped.get(scope)) {
+            reset(instance);
+        }
+    }
 
-            instances.put(glueClass, CucumberLifecycle.enrich(instance));
+    private static void reset(final Object instance) {
+        if (Resettable.class.isInstance(instance)) {
+            Resettable.class.cast(instance).reset();
         }
     }
 
@@ -106,33 +239,26 @@ public class ArquillianBackend extends JavaBackend implements Backend {
     }
 
     private void scan() {
-        for (final Map.Entry<Class<?>, Object> clazz : instances.entrySet()) {
+        for (final Map.Entry<Class<?>, GlueInstance> clazz : instances.entrySet()) {
             if (readFromJava(clazz)) {
                 glueType = GlueType.JAVA;
             }
-            if (readFromScalaDsl(clazz.getValue()) && glueType != GlueType.JAVA) {
+            if (!LazyInstance.class.isInstance(clazz.getValue()) && readFromScalaDsl(clazz.getValue().get()) && glueType != GlueType.JAVA) {
                 glueType = GlueType.SCALA;
             }
         }
     }
 
-    private boolean readFromJava(Map.Entry<Class<?>, Object> clazz) {
-        boolean found = false;
-        for (final Method method : clazz.getKey().getMethods()) {
-            for (final Class<? extends Annotation> cucumberAnnotationClass : CucumberLifecycle.cucumberAnnotations()) {
-                final Annotation annotation = method.getAnnotation(cucumberAnnotationClass);
-                if (annotation != null) {
-                    if (isHookAnnotation(annotation)) {
-                        addHook(annotation, method, clazz.getValue());
-                        found = true;
-                    } else if (isStepdefAnnotation(annotation)) {
-                        addStepDefinition(annotation, method, clazz.getValue());
-                        found = true;
-                    }
-                }
+    private boolean readFromJava(final Map.Entry<Class<?>, GlueInstance> clazz) {
+        final List<GlueScanner.GlueMethod> methods = GlueScanner.scan(clazz.getKey());
+        for (final GlueScanner.GlueMethod method : methods) {
+            if (GlueScanner.GlueMethod.STEP.equals(method.getType())) {
+                addStepDefinition(method, clazz.getValue());
+            } else {
+                addHook(method, clazz.getValue());
             }
         }
-        return found;
+        return !methods.isEmpty();
     }
 
     private boolean readFromScalaDsl(final Object instance) {
@@ -164,19 +290,9 @@ public class ArquillianBackend extends JavaBackend implements Backend {
         }
     }
 
-    private boolean isHookAnnotation(final Annotation annotation) {
-        final Class<? extends Annotation> annotationClass = annotation.annotationType();
-        return annotationClass.equals(Before.class) || annotationClass.equals(After.class);
-    }
-
-    private boolean isStepdefAnnotation(final Annotation annotation) {
-        final Class<? extends Annotation> annotationClass = annotation.annotationType();
-        return annotationClass.getAnnotation(StepDefAnnotation.class) != null;
-    }
-
-    private void addStepDefinition(final Annotation annotation, final Method method, final Object instance) {
+    private void addStepDefinition(final GlueScanner.GlueMethod method, final GlueInstance instance) {
         try {
-            glue.addStepDefinition(new ArquillianStepDefinition(method, pattern(annotation), timeout(annotation), instance));
+            glue.addStepDefinition(new ArquillianStepDefinition(method.getMethod(), Pattern.compile(method.getPattern()), method.getTimeout(), instance));
         } catch (DuplicateStepDefinitionException e) {
             throw e;
         } catch (Throwable e) {
@@ -184,26 +300,13 @@ public class ArquillianBackend extends JavaBackend implements Backend {
         }
     }
 
-    private Pattern pattern(final Annotation annotation) throws Throwable {
-        final Method regexpMethod = annotation.getClass().getMethod("value");
-        final String regexpString = (String) Utils.invoke(annotation, regexpMethod, 0);
-        return Pattern.compile(regexpString);
-    }
-
-    private long timeout(final Annotation annotation) throws Throwable {
-        final Method regexpMethod = annotation.getClass().getMethod("timeout");
-        return (Long) Utils.invoke(annotation, regexpMethod, 0);
-    }
-
-    private void addHook(final Annotation annotation, final Method method, final Object instance) {
-        if (annotation.annotationType().equals(Before.class)) {
-            final String[] tagExpressions = ((Before) annotation).value();
-            final long timeout = ((Before) annotation).timeout();
-            glue.addBeforeHook(new ArquillianHookDefinition(method, tagExpressions, ((Before) annotation).order(), timeout, instance));
+    private void addHook(final GlueScanner.GlueMethod method, final GlueInstance instance) {
+        final ArquillianHookDefinition hook = new ArquillianHookDefinition(
+                method.getMethod(), method.getTagExpressions(), method.getOrder(), method.getTimeout(), instance);
+        if (GlueScanner.GlueMethod.BEFORE.equals(method.getType())) {
+            glue.addBeforeHook(hook);
         } else {
-            final String[] tagExpressions = ((After) annotation).value();
-            final long timeout = ((After) annotation).timeout();
-            glue.addAfterHook(new ArquillianHookDefinition(method, tagExpressions, ((After) annotation).order(), timeout, instance));
+            glue.addAfterHook(hook);
         }
     }
 
@@ -227,7 +330,7 @@ public class ArquillianBackend extends JavaBackend implements Backend {
 
     @Override
     public void disposeWorld() {
-        // no-op
+        reset(GlueScope.Scope.SCENARIO);
     }
 
     @Override
@@ -249,6 +352,24 @@ public class ArquillianBackend extends JavaBackend implements Backend {
         return snippetGenerator.getSnippet(step, nameGenerator);
     }
 
+    // created (and enriched) on the first invocation of one of its steps or hooks
+    private class LazyInstance extends GlueInstance {
+        private final Class<?> glueClass;
+        private Object instance;
+
+        private LazyInstance(final Class<?> glueClass) {
+            this.glueClass = glueClass;
+        }
+
+        @Override
+        Object get() {
+            if (instance == null) {
+                instance = create(glueClass);
+            }
+            return instance;
+        }
+    }
+
     private static <T> Collection<T> readField(final Class<?> clazz, final String field, final Object instance, final Class<T> cast) throws Exception {
         final Field f = clazz.getDeclaredField(field);
         f.setAccessible(true);
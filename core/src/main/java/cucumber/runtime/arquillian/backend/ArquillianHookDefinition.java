@@ -4,7 +4,6 @@ import cucumber.api.Scenario;
 import cucumber.runtime.CucumberException;
 import cucumber.runtime.HookDefinition;
 import cucumber.runtime.MethodFormat;
-import cucumber.runtime.Utils;
 import gherkin.TagExpression;
 import gherkin.formatter.model.Tag;
 
@@ -14,19 +13,33 @@ import java.util.Collection;
 import static java.util.Arrays.asList;
 
 public class ArquillianHookDefinition implements HookDefinition {
+    private static final Object[] NO_ARGS = new Object[0];
+
     private final Method method;
     private final long timeout;
     private final TagExpression tagExpression;
     private final int order;
-    private final Object instance;
+    private final GlueInstance instance;
+    private MethodInvoker invoker; // bound on first invocation, definitions are used by a single runtime thread
+    private final int parameterCount;
+    private final boolean scenarioParameter;
 
     public ArquillianHookDefinition(final Method method, final String[] tagExpressions,
                                     final int order, final long timeout, final Object instance) {
+        this(method, tagExpressions, order, timeout, GlueInstance.of(instance));
+    }
+
+    ArquillianHookDefinition(final Method method, final String[] tagExpressions,
+                             final int order, final long timeout, final GlueInstance instance) {
         this.method = method;
         this.timeout = timeout;
         this.tagExpression = new TagExpression(asList(tagExpressions));
         this.order = order;
         this.instance = instance;
+
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        this.parameterCount = parameterTypes.length;
+        this.scenarioParameter = parameterCount == 1 && Scenario.class.equals(parameterTypes[0]);
     }
 
     @Override
@@ -38,12 +51,12 @@ public class ArquillianHookDefinition implements HookDefinition {
     @Override
     public void execute(final Scenario scenario) throws Throwable {
         Object[] args;
-        switch (method.getParameterTypes().length) {
+        switch (parameterCount) {
             case 0:
-                args = new Object[0];
+                args = NO_ARGS;
                 break;
             case 1:
-                if (!Scenario.class.equals(method.getParameterTypes()[0])) {
+                if (!scenarioParameter) {
                     throw new CucumberException("When a hook declares an argument it must be of type " + Scenario.class.getName() + ". " + method.toString());
                 }
                 args = new Object[]{scenario};
@@ -52,7 +65,15 @@ public class ArquillianHookDefinition implements HookDefinition {
                 throw new CucumberException("Hooks must declare 0 or 1 arguments. " + method.toString());
         }
 
-        Utils.invoke(instance, method, timeout, args);
+        prepare();
+        invoker.invoke(args, timeout);
+    }
+
+    // creates a lazy glue before the hooks run, cucumber times each hook execution
+    public void prepare() {
+        if (invoker == null) {
+            invoker = MethodInvoker.of(instance.get(), method);
+        }
     }
 
     @Override
@@ -4,10 +4,10 @@ import cucumber.runtime.JdkPatternArgumentMatcher;
 import cucumber.runtime.MethodFormat;
 import cucumber.runtime.ParameterInfo;
 import cucumber.runtime.StepDefinition;
-import cucumber.runtime.Utils;
 import gherkin.I18n;
 import gherkin.formatter.Argument;
 import gherkin.formatter.model.Step;
+import org.jboss.arquillian.test.spi.event.suite.TestEvent;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -19,10 +19,16 @@ public class ArquillianStepDefinition implements StepDefinition {
     private final Pattern pattern;
     private final long timeout;
     private final JdkPatternArgumentMatcher argumentMatcher;
-    private final Object instance;
+    private final GlueInstance instance;
+    private MethodInvoker invoker; // bound on first invocation, definitions are used by a single runtime thread
+    private TestEvent event; // same instance and method for each match
     private List<ParameterInfo> parameterInfos;
 
     public ArquillianStepDefinition(final Method method, final Pattern pattern, final long timeout, final Object instance) {
+        this(method, pattern, timeout, GlueInstance.of(instance));
+    }
+
+    ArquillianStepDefinition(final Method method, final Pattern pattern, final long timeout, final GlueInstance instance) {
         this.method = method;
         this.parameterInfos = ParameterInfo.fromMethod(method);
         this.pattern = pattern;
@@ -32,7 +38,15 @@ public class ArquillianStepDefinition implements StepDefinition {
     }
 
     public void execute(final I18n i18n, final Object[] args) throws Throwable {
-        Utils.invoke(instance, method, timeout, args);
+        prepare();
+        invoker.invoke(args, timeout);
+    }
+
+    // creates a lazy glue when the step is matched, before cucumber starts timing it
+    public void prepare() {
+        if (invoker == null) {
+            invoker = MethodInvoker.of(instance.get(), method);
+        }
     }
 
     public List<Argument> matchedArguments(final Step step) {
@@ -69,10 +83,17 @@ public class ArquillianStepDefinition implements StepDefinition {
     }
 
     public Object getInstance() {
-        return instance;
+        return instance.get();
     }
 
     public Method getMethod() {
         return method;
     }
+
+    public TestEvent getEvent() {
+        if (event == null) {
+            event = new TestEvent(getInstance(), method);
+        }
+        return event;
+    }
 }
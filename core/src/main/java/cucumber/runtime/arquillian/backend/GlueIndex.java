@@ -0,0 +1,134 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.runtime.arquillian.shared.ClientServerFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+// hooks and step definitions of a glue class computed on client side and shipped in cukespace-glues.jar:
+// the container registers them without reading annotations
+public final class GlueIndex {
+    private static final Logger LOGGER = Logger.getLogger(GlueIndex.class.getName());
+    private static final String VERSION = "1";
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+    static {
+        for (final Class<?> primitive : new Class<?>[] {
+                boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class }) {
+            PRIMITIVES.put(primitive.getName(), primitive);
+        }
+    }
+
+    private GlueIndex() {
+        // no-op
+    }
+
+    public static String resourceName(final Class<?> clazz) {
+        return ClientServerFiles.GLUE_INDEX_FOLDER + clazz.getName() + ".properties";
+    }
+
+    public static byte[] create(final Class<?> clazz) {
+        final List<GlueScanner.GlueMethod> methods = GlueScanner.scanAnnotations(clazz);
+
+        final Properties index = new Properties();
+        index.setProperty("version", VERSION);
+        index.setProperty("count", Integer.toString(methods.size()));
+        for (int i = 0; i < methods.size(); i++) {
+            final GlueScanner.GlueMethod method = methods.get(i);
+            final String prefix = i + ".";
+            index.setProperty(prefix + "type", method.getType());
+            index.setProperty(prefix + "annotation", method.getAnnotation());
+            index.setProperty(prefix + "method", method.getMethod().getName());
+            index.setProperty(prefix + "timeout", Long.toString(method.getTimeout()));
+
+            final Class<?>[] parameterTypes = method.getMethod().getParameterTypes();
+            index.setProperty(prefix + "parameters", Integer.toString(parameterTypes.length));
+            for (int p = 0; p < parameterTypes.length; p++) {
+                index.setProperty(prefix + "parameters." + p, parameterTypes[p].getName());
+            }
+
+            if (method.getPattern() != null) {
+                index.setProperty(prefix + "pattern", method.getPattern());
+            }
+            if (method.getTagExpressions() != null) {
+                index.setProperty(prefix + "order", Integer.toString(method.getOrder()));
+                index.setProperty(prefix + "tags", Integer.toString(method.getTagExpressions().length));
+                for (int t = 0; t < method.getTagExpressions().length; t++) {
+                    index.setProperty(prefix + "tags." + t, method.getTagExpressions()[t]);
+                }
+            }
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            index.store(out, null);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // null if there is no (readable) index for this class
+    static List<GlueScanner.GlueMethod> read(final Class<?> clazz) {
+        final ClassLoader loader = clazz.getClassLoader();
+        final InputStream stream = loader == null ? null : loader.getResourceAsStream(resourceName(clazz));
+        if (stream == null) {
+            return null;
+        }
+
+        try {
+            final Properties index = new Properties();
+            try {
+                index.load(stream);
+            } finally {
+                stream.close();
+            }
+            if (!VERSION.equals(index.getProperty("version"))) {
+                return null;
+            }
+
+            final int count = Integer.parseInt(index.getProperty("count"));
+            final List<GlueScanner.GlueMethod> methods = new ArrayList<GlueScanner.GlueMethod>(count);
+            for (int i = 0; i < count; i++) {
+                final String prefix = i + ".";
+
+                final Class<?>[] parameterTypes = new Class<?>[Integer.parseInt(index.getProperty(prefix + "parameters"))];
+                for (int p = 0; p < parameterTypes.length; p++) {
+                    parameterTypes[p] = load(index.getProperty(prefix + "parameters." + p), loader);
+                }
+                final Method method = clazz.getMethod(index.getProperty(prefix + "method"), parameterTypes);
+
+                String[] tagExpressions = null;
+                if (index.containsKey(prefix + "tags")) {
+                    tagExpressions = new String[Integer.parseInt(index.getProperty(prefix + "tags"))];
+                    for (int t = 0; t < tagExpressions.length; t++) {
+                        tagExpressions[t] = index.getProperty(prefix + "tags." + t);
+                    }
+                }
+
+                methods.add(new GlueScanner.GlueMethod(
+                        method, index.getProperty(prefix + "type"), index.getProperty(prefix + "annotation"), index.getProperty(prefix + "pattern"),
+                        Long.parseLong(index.getProperty(prefix + "timeout")), Integer.parseInt(index.getProperty(prefix + "order", "0")), tagExpressions));
+            }
+            return methods;
+        } catch (final Exception e) { // the glue changed since?
+            LOGGER.warning("Can't read glue index of " + clazz.getName() + ", scanning it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Class<?> load(final String name, final ClassLoader loader) throws ClassNotFoundException {
+        final Class<?> primitive = PRIMITIVES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+        return Class.forName(name, false, loader);
+    }
+}
@@ -0,0 +1,15 @@
+package cucumber.runtime.arquillian.backend;
+
+// instance the step and hook definitions of a glue are invoked on, lazy glues create it on first use
+abstract class GlueInstance {
+    abstract Object get();
+
+    static GlueInstance of(final Object instance) {
+        return new GlueInstance() {
+            @Override
+            Object get() {
+                return instance;
+            }
+        };
+    }
+}
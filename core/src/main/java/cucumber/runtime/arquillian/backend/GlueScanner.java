@@ -0,0 +1,136 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.api.java.After;
+import cucumber.api.java.Before;
+import cucumber.runtime.CucumberException;
+import cucumber.runtime.arquillian.lifecycle.CucumberLifecycle;
+import cucumber.runtime.java.StepDefAnnotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+// hooks and step definitions of a glue class: read from the glue index computed on client side when the deployment
+// has one (see GlueIndex), else the annotations of each public method are read once and looked up in the set of
+// cucumber annotations. Results are cached per class so test classes of a deployment sharing glues don't scan them
+// again. Values are soft since they reference the class (weak key) through their methods.
+final class GlueScanner {
+    private static final Map<Class<?>, SoftReference<List<GlueMethod>>> CACHE = new WeakHashMap<Class<?>, SoftReference<List<GlueMethod>>>();
+
+    private GlueScanner() {
+        // no-op
+    }
+
+    static List<GlueMethod> scan(final Class<?> clazz) {
+        synchronized (CACHE) {
+            final SoftReference<List<GlueMethod>> cached = CACHE.get(clazz);
+            final List<GlueMethod> methods = cached == null ? null : cached.get();
+            if (methods != null) {
+                return methods;
+            }
+        }
+
+        List<GlueMethod> methods = GlueIndex.read(clazz);
+        if (methods == null) {
+            methods = scanAnnotations(clazz);
+        }
+
+        final List<GlueMethod> result = methods.isEmpty() ? Collections.<GlueMethod>emptyList() : Collections.unmodifiableList(methods);
+        synchronized (CACHE) {
+            CACHE.put(clazz, new SoftReference<List<GlueMethod>>(result));
+        }
+        return result;
+    }
+
+    static List<GlueMethod> scanAnnotations(final Class<?> clazz) {
+        final Set<String> cucumberAnnotations = new HashSet<String>(CucumberLifecycle.cucumberAnnotationNames());
+        final List<GlueMethod> methods = new ArrayList<GlueMethod>();
+        for (final Method method : clazz.getMethods()) {
+            for (final Annotation annotation : method.getDeclaredAnnotations()) {
+                final Class<? extends Annotation> type = annotation.annotationType();
+                if (!cucumberAnnotations.contains(type.getName())) {
+                    continue;
+                }
+                if (Before.class.equals(type)) {
+                    final Before before = Before.class.cast(annotation);
+                    methods.add(new GlueMethod(method, GlueMethod.BEFORE, type.getName(), null, before.timeout(), before.order(), before.value()));
+                } else if (After.class.equals(type)) {
+                    final After after = After.class.cast(annotation);
+                    methods.add(new GlueMethod(method, GlueMethod.AFTER, type.getName(), null, after.timeout(), after.order(), after.value()));
+                } else if (type.getAnnotation(StepDefAnnotation.class) != null) {
+                    methods.add(new GlueMethod(method, GlueMethod.STEP, type.getName(),
+                            String.class.cast(attribute(annotation, "value")), Long.class.cast(attribute(annotation, "timeout")), 0, null));
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static Object attribute(final Annotation annotation, final String name) {
+        try {
+            return annotation.annotationType().getMethod(name).invoke(annotation);
+        } catch (final Exception e) {
+            throw new CucumberException(e);
+        }
+    }
+
+    static final class GlueMethod {
+        static final String STEP = "step";
+        static final String BEFORE = "before";
+        static final String AFTER = "after";
+
+        private final Method method;
+        private final String type;
+        private final String annotation;
+        private final String pattern; // steps
+        private final long timeout;
+        private final int order; // hooks
+        private final String[] tagExpressions; // hooks
+
+        GlueMethod(final Method method, final String type, final String annotation, final String pattern,
+                   final long timeout, final int order, final String[] tagExpressions) {
+            this.method = method;
+            this.type = type;
+            this.annotation = annotation;
+            this.pattern = pattern;
+            this.timeout = timeout;
+            this.order = order;
+            this.tagExpressions = tagExpressions;
+        }
+
+        Method getMethod() {
+            return method;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        String getAnnotation() {
+            return annotation;
+        }
+
+        String getPattern() {
+            return pattern;
+        }
+
+        long getTimeout() {
+            return timeout;
+        }
+
+        int getOrder() {
+            return order;
+        }
+
+        String[] getTagExpressions() {
+            return tagExpressions;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.runtime.AmbiguousStepDefinitionsException;
+import cucumber.runtime.RuntimeGlue;
+import cucumber.runtime.StepDefinition;
+import cucumber.runtime.StepDefinitionMatch;
+import cucumber.runtime.UndefinedStepsTracker;
+import cucumber.runtime.xstream.LocalizedXStreams;
+import gherkin.I18n;
+import gherkin.formatter.Argument;
+import gherkin.formatter.model.Step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// RuntimeGlue trying each pattern against each step: step definitions are indexed by the literal prefix of their
+// pattern (matched with lookingAt) so only the ones whose prefix starts the step text are tried. Matches are the same
+// and reported in the same (pattern) order so ambiguities are unchanged.
+// Resolved definitions and arguments of a step text are then memoized until new glue is registered.
+public class IndexedGlue extends RuntimeGlue {
+    private static final int KEY_LENGTH = 4;
+    private static final int MATCH_CACHE_SIZE = 1024; // per language
+    private static final String META_CHARACTERS = "[](){}.*+?|^$";
+    private static final Comparator<Resolved> PATTERN_ORDER = new Comparator<Resolved>() {
+        @Override
+        public int compare(final Resolved o1, final Resolved o2) {
+            return o1.stepDefinition.getPattern().compareTo(o2.stepDefinition.getPattern());
+        }
+    };
+
+    private final UndefinedStepsTracker tracker;
+    private final LocalizedXStreams localizedXStreams;
+    private final Map<String, List<Entry>> byKey = new HashMap<String, List<Entry>>(); // prefixes of KEY_LENGTH or more
+    private final List<Entry> shortPrefixes = new ArrayList<Entry>(); // prefixes shorter than KEY_LENGTH, including none
+    private final Map<String, Map<String, List<Resolved>>> matchCache = new HashMap<String, Map<String, List<Resolved>>>(); // language -> step text
+
+    public IndexedGlue(final UndefinedStepsTracker tracker, final LocalizedXStreams localizedXStreams) {
+        super(tracker, localizedXStreams);
+        this.tracker = tracker;
+        this.localizedXStreams = localizedXStreams;
+    }
+
+    public UndefinedStepsTracker getTracker() {
+        return tracker;
+    }
+
+    @Override
+    public void addStepDefinition(final StepDefinition stepDefinition) {
+        super.addStepDefinition(stepDefinition); // duplicates check and reporting
+        matchCache.clear();
+
+        final String prefix = ArquillianStepDefinition.class.isInstance(stepDefinition) ? literalPrefix(stepDefinition.getPattern()) : "";
+        final Entry entry = new Entry(prefix, stepDefinition);
+        if (prefix.length() < KEY_LENGTH) {
+            shortPrefixes.add(entry);
+        } else {
+            final String key = prefix.substring(0, KEY_LENGTH);
+            List<Entry> entries = byKey.get(key);
+            if (entries == null) {
+                entries = new ArrayList<Entry>();
+                byKey.put(key, entries);
+            }
+            entries.add(entry);
+        }
+    }
+
+    @Override
+    public void removeScenarioScopedGlue() {
+        super.removeScenarioScopedGlue();
+        matchCache.clear();
+        removeScenarioScoped(shortPrefixes);
+        final Iterator<List<Entry>> entries = byKey.values().iterator();
+        while (entries.hasNext()) {
+            final List<Entry> list = entries.next();
+            removeScenarioScoped(list);
+            if (list.isEmpty()) {
+                entries.remove();
+            }
+        }
+    }
+
+    @Override
+    public StepDefinitionMatch stepDefinitionMatch(final String featurePath, final Step step, final I18n i18n) {
+        final List<Resolved> resolved = resolve(step, i18n);
+        try {
+            if (resolved.isEmpty()) {
+                tracker.addUndefinedStep(step, i18n);
+                return null;
+            }
+            if (resolved.size() == 1) {
+                return resolved.get(0).match(featurePath, step, localizedXStreams);
+            }
+
+            final List<StepDefinitionMatch> matches = new ArrayList<StepDefinitionMatch>(resolved.size());
+            for (final Resolved r : resolved) {
+                matches.add(r.match(featurePath, step, localizedXStreams));
+            }
+            throw new AmbiguousStepDefinitionsException(matches);
+        } finally {
+            tracker.storeStepKeyword(step, i18n);
+        }
+    }
+
+    // matching only depends on the step text, the language only matters for the keywords but is kept in the key
+    private List<Resolved> resolve(final Step step, final I18n i18n) {
+        final String language = i18n == null ? "" : i18n.getIsoCode();
+        Map<String, List<Resolved>> byName = matchCache.get(language);
+        if (byName == null) {
+            byName = new LinkedHashMap<String, List<Resolved>>(16, .75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, List<Resolved>> eldest) {
+                    return size() > MATCH_CACHE_SIZE;
+                }
+            };
+            matchCache.put(language, byName);
+        }
+
+        final String name = step.getName();
+        List<Resolved> resolved = byName.get(name);
+        if (resolved == null) {
+            resolved = stepDefinitionMatches(step, name);
+            byName.put(name, resolved);
+        }
+        return resolved;
+    }
+
+    private List<Resolved> stepDefinitionMatches(final Step step, final String name) {
+        final List<Resolved> result = new ArrayList<Resolved>(1);
+        addMatches(shortPrefixes, step, name, result);
+        if (name.length() >= KEY_LENGTH) {
+            final List<Entry> entries = byKey.get(name.substring(0, KEY_LENGTH));
+            if (entries != null) {
+                addMatches(entries, step, name, result);
+            }
+        }
+        if (result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (result.size() > 1) {
+            Collections.sort(result, PATTERN_ORDER);
+        }
+        return result;
+    }
+
+    private static void addMatches(final List<Entry> entries, final Step step, final String name, final List<Resolved> result) {
+        for (final Entry entry : entries) {
+            if (!name.startsWith(entry.prefix)) {
+                continue;
+            }
+            final List<Argument> arguments = entry.stepDefinition.matchedArguments(step);
+            if (arguments != null) {
+                result.add(new Resolved(entry.stepDefinition, arguments));
+            }
+        }
+    }
+
+    private static void removeScenarioScoped(final List<Entry> entries) {
+        final Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().stepDefinition.isScenarioScoped()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // literal text any match (lookingAt) starts with, empty when it can't be determined simply
+    static String literalPrefix(final String regex) {
+        if (regex.contains("\\Q") || hasTopLevelAlternation(regex)) {
+            return "";
+        }
+
+        final StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            int next = i + 1;
+            if (c == '\\') {
+                if (next >= regex.length() || Character.isLetterOrDigit(regex.charAt(next))) { // \d, \s, back reference...
+                    break;
+                }
+                c = regex.charAt(next);
+                next++;
+            } else if (META_CHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+
+            if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) { // optional character
+                if (prefix.length() > 0 && Character.isHighSurrogate(prefix.charAt(prefix.length() - 1))) {
+                    prefix.setLength(prefix.length() - 1);
+                }
+                break;
+            }
+            prefix.append(c);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    private static boolean hasTopLevelAlternation(final String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a matching definition and its arguments (offsets and values), immutable so shared by the matches of a text
+    private static class Resolved {
+        private final StepDefinition stepDefinition;
+        private final List<Argument> arguments;
+
+        private Resolved(final StepDefinition stepDefinition, final List<Argument> arguments) {
+            this.stepDefinition = stepDefinition;
+            this.arguments = arguments;
+        }
+
+        private StepDefinitionMatch match(final String featurePath, final Step step, final LocalizedXStreams localizedXStreams) {
+            return new StepDefinitionMatch(arguments, stepDefinition, featurePath, step, localizedXStreams);
+        }
+    }
+
+    private static class Entry {
+        private final String prefix;
+        private final StepDefinition stepDefinition;
+
+        private Entry(final String prefix, final StepDefinition stepDefinition) {
+            this.prefix = prefix;
+            this.stepDefinition = stepDefinition;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.runtime.CucumberException;
+import cucumber.runtime.MethodFormat;
+import cucumber.runtime.Utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// invoker of a glue method bound to its instance once, when the step/hook definition is registered:
+// a MethodHandle taking the arguments as an Object[] when java.lang.invoke is there, cucumber reflection otherwise
+abstract class MethodInvoker {
+    private static final Logger LOGGER = Logger.getLogger(MethodInvoker.class.getName());
+    private static final boolean METHOD_HANDLES = isAvailable("java.lang.invoke.MethodHandles");
+
+    protected final Object instance;
+    protected final Method method;
+
+    private MethodInvoker(final Object instance, final Method method) {
+        this.instance = instance;
+        this.method = method;
+    }
+
+    static MethodInvoker of(final Object instance, final Method method) {
+        // a target from another loader needs cucumber method lookup (Utils#targetMethod)
+        if (METHOD_HANDLES && (Modifier.isStatic(method.getModifiers())
+                || (instance != null && instance.getClass().getClassLoader() == method.getDeclaringClass().getClassLoader()))) {
+            try {
+                return new HandleInvoker(instance, method);
+            } catch (final Exception e) {
+                LOGGER.fine("Can't create a method handle for " + method + ", using reflection: " + e.getMessage());
+            }
+        }
+        return new ReflectionInvoker(instance, method);
+    }
+
+    Object invoke(final Object[] args, final long timeout) throws Throwable {
+        if (timeout == 0) {
+            return invoke(args);
+        }
+        return Watchdog.call(new Watchdog.Invocation() {
+            @Override
+            public Object invoke() throws Throwable {
+                return MethodInvoker.this.invoke(args);
+            }
+        }, timeout);
+    }
+
+    protected abstract Object invoke(Object[] args) throws Throwable;
+
+    private static boolean isAvailable(final String name) {
+        try {
+            Class.forName(name, false, MethodInvoker.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException e) { // java 6
+            return false;
+        }
+    }
+
+    static class HandleInvoker extends MethodInvoker {
+        private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+        private static final List<Class<?>> WIDENING = Arrays.<Class<?>>asList(
+                Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+        private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+        static {
+            WRAPPERS.put(boolean.class, Boolean.class);
+            WRAPPERS.put(byte.class, Byte.class);
+            WRAPPERS.put(short.class, Short.class);
+            WRAPPERS.put(char.class, Character.class);
+            WRAPPERS.put(int.class, Integer.class);
+            WRAPPERS.put(long.class, Long.class);
+            WRAPPERS.put(float.class, Float.class);
+            WRAPPERS.put(double.class, Double.class);
+        }
+
+        private final MethodHandle handle;
+        private final Class<?>[] parameterTypes;
+        private final int parameterCount;
+
+        HandleInvoker(final Object instance, final Method method) throws IllegalAccessException {
+            super(instance, method);
+
+            method.setAccessible(true); // once, Utils#invoke toggles it for each call
+            MethodHandle unreflected = MethodHandles.lookup().unreflect(method);
+            if (!Modifier.isStatic(method.getModifiers())) {
+                unreflected = unreflected.bindTo(instance);
+            }
+            parameterTypes = method.getParameterTypes();
+            parameterCount = parameterTypes.length;
+            handle = unreflected.asSpreader(Object[].class, parameterCount).asType(SPREAD_TYPE);
+        }
+
+        @Override
+        protected Object invoke(final Object[] args) throws Throwable {
+            if (args.length != parameterCount) { // asSpreader would fail with a less explicit error
+                throw new CucumberException("Failed to invoke " + MethodFormat.FULL.format(method));
+            }
+            try {
+                return handle.invokeExact(args); // exact (Object[])Object call site
+            } catch (final WrongMethodTypeException e) {
+                throw new CucumberException("Failed to invoke " + MethodFormat.FULL.format(method), e);
+            } catch (final ClassCastException e) {
+                throw conversionFailure(args, e);
+            } catch (final NullPointerException e) {
+                throw conversionFailure(args, e);
+            }
+        }
+
+        // asType casts and unboxes before calling the method, the IllegalArgumentException of Method#invoke
+        private RuntimeException conversionFailure(final Object[] args, final RuntimeException e) {
+            for (int i = 0; i < parameterCount; i++) {
+                if (!accepts(parameterTypes[i], args[i])) {
+                    return new CucumberException("Failed to invoke " + MethodFormat.FULL.format(method), e);
+                }
+            }
+            return e; // thrown by the method
+        }
+
+        // Method#invoke rules: unboxing followed by a primitive widening
+        private static boolean accepts(final Class<?> type, final Object arg) {
+            if (!type.isPrimitive()) {
+                return arg == null || type.isInstance(arg);
+            }
+            if (arg == null) {
+                return false;
+            }
+            final Class<?> wrapper = WRAPPERS.get(type);
+            if (wrapper.isInstance(arg)) {
+                return true;
+            }
+            final int to = WIDENING.indexOf(wrapper);
+            if (Character.class.isInstance(arg)) {
+                return to >= WIDENING.indexOf(Integer.class);
+            }
+            final int from = WIDENING.indexOf(arg.getClass());
+            return from >= 0 && to > from;
+        }
+    }
+
+    static class ReflectionInvoker extends MethodInvoker {
+        ReflectionInvoker(final Object instance, final Method method) {
+            super(instance, method);
+        }
+
+        @Override
+        protected Object invoke(final Object[] args) throws Throwable {
+            return Utils.invoke(instance, method, 0, args);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package cucumber.runtime.arquillian.backend;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// step and hook timeouts: a single scheduler thread for the JVM, created with the first timeout, interrupts the
+// overrunning thread after having captured its stack so the report shows where it was stuck.
+// Replaces cucumber Timeout which creates a scheduler (so a thread) per invocation.
+final class Watchdog {
+    private static final int RUNNING = 0;
+    private static final int DONE = 1;
+    private static final int TIMED_OUT = 2;
+
+    private Watchdog() {
+        // no-op
+    }
+
+    static Object call(final Invocation invocation, final long timeoutMillis) throws Throwable {
+        final Thread executionThread = Thread.currentThread();
+        final AtomicInteger state = new AtomicInteger(RUNNING);
+        final AtomicBoolean interrupted = new AtomicBoolean(); // by this watchdog
+        final CountDownLatch released = new CountDownLatch(1); // the timer is done with the execution thread
+        final StuckThread stuck = new StuckThread(executionThread.getName());
+        final ScheduledFuture<?> timer = Scheduler.INSTANCE.schedule(new Runnable() {
+            @Override
+            public void run() {
+                final StackTraceElement[] stack = executionThread.getStackTrace();
+                if (state.compareAndSet(RUNNING, TIMED_OUT)) {
+                    try {
+                        stuck.setStackTrace(stack);
+                        if (!executionThread.isInterrupted()) { // else not ours to clear
+                            executionThread.interrupt();
+                            interrupted.set(true);
+                        }
+                    } finally {
+                        released.countDown();
+                    }
+                }
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            return invocation.invoke();
+        } catch (final InterruptedException ie) {
+            if (state.get() == TIMED_OUT) {
+                final TimeoutException timeout = new TimeoutException("Timed out after " + timeoutMillis + "ms.");
+                timeout.initCause(stuck);
+                throw timeout;
+            }
+            throw ie;
+        } finally {
+            timer.cancel(false);
+            if (!state.compareAndSet(RUNNING, DONE)) { // the timer can be between the timeout and interrupt()
+                final boolean interruptedWhileWaiting = awaitUninterruptibly(released);
+                if (interrupted.get()) { // pending if the invocation ignored it
+                    Thread.interrupted();
+                } else if (interruptedWhileWaiting) {
+                    executionThread.interrupt();
+                }
+            }
+        }
+    }
+
+    private static boolean awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                return interrupted;
+            } catch (final InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+    }
+
+    interface Invocation {
+        Object invoke() throws Throwable;
+    }
+
+    // the stack of the thread when the timeout was reached, attached as cause of the timeout
+    private static class StuckThread extends Throwable {
+        private static final long serialVersionUID = 1L;
+
+        private StuckThread(final String thread) {
+            super("Thread '" + thread + "' when the timeout was reached");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this; // set by the watchdog
+        }
+    }
+
+    private static final class Scheduler {
+        private static final ScheduledThreadPoolExecutor INSTANCE = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "cukespace-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        static {
+            try { // java 7, else cancelled timers stay queued until their delay
+                INSTANCE.setRemoveOnCancelPolicy(true);
+            } catch (final NoSuchMethodError e) {
+                // no-op
+            }
+        }
+
+        private Scheduler() {
+            // no-op
+        }
+    }
+}
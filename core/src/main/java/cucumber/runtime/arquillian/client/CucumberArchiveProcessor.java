@@ -5,15 +5,28 @@ import cucumber.runtime.arquillian.ArquillianCucumber;
 import cucumber.runtime.arquillian.CukeSpace;
 import cucumber.runtime.arquillian.api.event.StepEvent;
 import cucumber.runtime.arquillian.backend.ArquillianBackend;
+import cucumber.runtime.arquillian.backend.GlueIndex;
 import cucumber.runtime.arquillian.config.CucumberConfiguration;
 import cucumber.runtime.arquillian.container.CucumberContainerExtension;
+import cucumber.runtime.arquillian.feature.FailedScenarios;
+import cucumber.runtime.arquillian.feature.FeatureElements;
+import cucumber.runtime.arquillian.feature.FeatureIndex;
 import cucumber.runtime.arquillian.feature.Features;
+import cucumber.runtime.arquillian.feature.GherkinAst;
+import cucumber.runtime.arquillian.feature.ScenarioCache;
+import cucumber.runtime.arquillian.feature.Shards;
+import cucumber.runtime.arquillian.glue.CompiledGlueIndex;
 import cucumber.runtime.arquillian.glue.Glues;
+import cucumber.runtime.arquillian.lifecycle.AnnotationCatalogue;
 import cucumber.runtime.arquillian.lifecycle.CucumberLifecycle;
 import cucumber.runtime.arquillian.reporter.CucumberReporter;
+import cucumber.runtime.arquillian.reporter.JsonReport;
+import cucumber.runtime.arquillian.reporter.MetricsReport;
+import cucumber.runtime.arquillian.reporter.NdjsonReport;
 import cucumber.runtime.arquillian.runner.BaseCukeSpace;
 import cucumber.runtime.arquillian.shared.ClientServerFiles;
 import cucumber.runtime.arquillian.stream.NotCloseablePrintStream;
+import cucumber.runtime.model.PathWithLines;
 import cucumber.runtime.io.ResourceLoaderClassFinder;
 import cucumber.runtime.java.JavaBackend;
 import gherkin.util.Mapper;
@@ -24,21 +37,34 @@ import org.jboss.arquillian.core.api.annotation.Inject;
 import org.jboss.arquillian.test.spi.TestClass;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
 import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.container.ClassContainer;
 import org.jboss.shrinkwrap.api.container.LibraryContainer;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.jboss.shrinkwrap.impl.base.asset.AssetUtil;
 import org.jboss.shrinkwrap.impl.base.filter.IncludeRegExpPaths;
 
 import java.io.File;
+import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
 import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.logging.Logger;
 
 import static cucumber.runtime.arquillian.locator.JarLocation.jarLocation;
@@ -48,11 +74,29 @@ import static java.util.Arrays.asList;
 import static org.jboss.shrinkwrap.api.ShrinkWrap.create;
 
 public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
+    private static final int MAX_CACHED_RESOURCE_JARS = 128;
+
     private static volatile StringAsset scannedAnnotations = null;
 
+    // support archives and libraries are shared by all test classes while the classpath doesn't change
+    private static String classpathFingerprint = null;
+    private static JavaArchive cukespaceJunitJar = null;
+    private static JavaArchive cukespaceTestNGJar = null;
+    private static File[] cucumberLibraries = null;
+    private static final Map<String, File> LIBRARIES = new HashMap<String, File>();
+    private static final Map<String, JavaArchive> RESOURCE_JARS = new LinkedHashMap<String, JavaArchive>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, JavaArchive> eldest) {
+            return size() > MAX_CACHED_RESOURCE_JARS;
+        }
+    };
+
     @Inject
     private Instance<CucumberConfiguration> configuration;
 
+    @Inject
+    private Instance<CucumberSuiteDeployer.SuiteClasses> suiteClasses;
+
     @Override
     public void process(final Archive<?> applicationArchive, final TestClass testClass) {
         if (JavaArchive.class.isInstance(applicationArchive)) {
@@ -62,8 +106,10 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
         // try to find the feature
         final Class<?> javaClass = testClass.getJavaClass();
         final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-        final Map<String, Collection<URL>> featureUrls = Features.createFeatureMap(
-                configuration.get().getTempDir(), configuration.get().getFeatureHome(), javaClass, loader);
+        checkClasspath(loader);
+        // before any enrichment to only track the application
+        final String deploymentFingerprint = configuration.get().isIncremental() ? fingerprint(applicationArchive) : null;
+        final Map<String, Collection<URL>> featureUrls = createFeatureMap(configuration.get(), javaClass, loader);
 
         Class testNgBase = null;
         try {
@@ -119,24 +165,46 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
         final LibraryContainer<?> libraryContainer = (LibraryContainer<?>) applicationArchive;
 
         // add feature file + list of annotations
-        final JavaArchive resourceJar = create(JavaArchive.class, "cukespace-resources.jar");
+        final Map<String, String> resources = new LinkedHashMap<String, String>();
+        final Map<String, byte[]> asts = new HashMap<String, byte[]>(); // derived from resources
 
         final CucumberConfiguration cucumberConfiguration = configuration.get();
         final boolean report = cucumberConfiguration.isReport() || cucumberConfiguration.isGenerateDocs();
         final String reportDirectory = cucumberConfiguration.getReportDirectory();
 
-        addFeatures(featureUrls, ln, resourceJar);
-        addCucumberAnnotations(ln, resourceJar);
-        addConfiguration(resourceJar, cucumberConfiguration, report, reportDirectory);
+        // a suite deployment is shared by all test classes using the same @Deployment method
+        final CucumberSuiteDeployer.SuiteClasses suiteOfDeployment = suiteClasses.get();
+        final Collection<Class<?>> suite = suiteOfDeployment == null ? null : suiteOfDeployment.getClasses();
+        final Collection<Class<?>> testClasses;
+        if (suite == null) {
+            testClasses = Collections.<Class<?>>singletonList(javaClass);
+        } else {
+            testClasses = suite;
+        }
 
-        libraryContainer.addAsLibrary(resourceJar);
+        for (final Class<?> testClassOfDeployment : testClasses) {
+            if (testClassOfDeployment == javaClass) {
+                addFeatures(javaClass, suite != null, featureUrls, ln, resources, asts, cucumberConfiguration);
+            } else { // arquillian only adds the deployed test class
+                addFeatures(testClassOfDeployment, true, createFeatureMap(cucumberConfiguration, testClassOfDeployment, loader),
+                        ln, resources, asts, cucumberConfiguration);
+                if (ClassContainer.class.isInstance(applicationArchive)) {
+                    ((ClassContainer<?>) applicationArchive).addClass(testClassOfDeployment);
+                }
+            }
 
-        if (report) {
-            CucumberReporter.addReport(CucumberConfiguration.reportFile(reportDirectory, javaClass));
+            if (report) {
+                CucumberReporter.addReport(CucumberConfiguration.reportFile(reportDirectory, testClassOfDeployment));
+            }
         }
+        addConfiguration(resources, cucumberConfiguration, report, reportDirectory, deploymentFingerprint);
+
+        libraryContainer.addAsLibrary(resourceJar(resources, asts, ln));
+        libraryContainer.addAsLibrary(create(JavaArchive.class, "cukespace-deployment.jar")
+                .addAsResource(new StringAsset(applicationArchive.getId()), ClientServerFiles.DEPLOYMENT)); // not in the shared jar
 
         // glues
-        enrichWithGlues(javaClass, libraryContainer, ln);
+        enrichWithGlues(testClasses, suite != null, libraryContainer, ln);
 
         // cucumber-java and cucumber-core
         enrichWithDefaultCucumber(libraryContainer);
@@ -149,16 +217,129 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
         tryToAdd(libs, libraryContainer, "WEB-INF/lib/scala-library-", "cucumber.api.scala.ScalaDsl", "scala.App");
     }
 
-    private static void addConfiguration(final JavaArchive resourceJar, final CucumberConfiguration cucumberConfiguration, final boolean report, final String reportDirectory) {
+    private static Map<String, Collection<URL>> createFeatureMap(final CucumberConfiguration cucumberConfiguration, final Class<?> javaClass, final ClassLoader loader) {
+        if (cucumberConfiguration.isFeatureIndex()) {
+            return FeatureIndex.createFeatureMap(cucumberConfiguration.getTempDir(), cucumberConfiguration.getFeatureHome(), javaClass, loader);
+        }
+        return Features.createFeatureMap(cucumberConfiguration.getTempDir(), cucumberConfiguration.getFeatureHome(), javaClass, loader);
+    }
+
+    private static void checkClasspath(final ClassLoader loader) {
+        final String fingerprint = System.getProperty("java.class.path") + '@' + System.identityHashCode(loader);
+        synchronized (CucumberArchiveProcessor.class) {
+            if (!fingerprint.equals(classpathFingerprint)) {
+                classpathFingerprint = fingerprint;
+                cukespaceJunitJar = null;
+                cukespaceTestNGJar = null;
+                cucumberLibraries = null;
+                LIBRARIES.clear();
+                RESOURCE_JARS.clear();
+            }
+        }
+    }
+
+    // resources jars are keyed by their content so test classes sharing features and configuration share the archive
+    private static JavaArchive resourceJar(final Map<String, String> resources, final Map<String, byte[]> asts, final String ln) {
+        final String key = digest(resources);
+        synchronized (CucumberArchiveProcessor.class) {
+            final JavaArchive cached = RESOURCE_JARS.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final JavaArchive resourceJar = create(JavaArchive.class, "cukespace-resources.jar");
+        for (final Map.Entry<String, String> resource : resources.entrySet()) {
+            resourceJar.addAsResource(new StringAsset(resource.getValue()), resource.getKey());
+        }
+        for (final Map.Entry<String, byte[]> ast : asts.entrySet()) {
+            resourceJar.addAsResource(new ByteArrayAsset(ast.getValue()), ast.getKey());
+        }
+        addCucumberAnnotations(ln, resourceJar);
+
+        synchronized (CucumberArchiveProcessor.class) {
+            RESOURCE_JARS.put(key, resourceJar);
+        }
+        return resourceJar;
+    }
+
+    private static String digest(final Map<String, String> resources) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (final Map.Entry<String, String> resource : resources.entrySet()) {
+                digest.update(resource.getKey().getBytes("UTF-8"));
+                digest.update((byte) 0);
+                digest.update(resource.getValue().getBytes("UTF-8"));
+                digest.update((byte) 0);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // archive content ordered by path, nested archives are walked since their zip export is not stable (timestamps)
+    private static String fingerprint(final Archive<?> archive) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            updateDigest(digest, archive);
+            return new BigInteger(1, digest.digest()).toString(16);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(final MessageDigest digest, final Archive<?> archive) throws UnsupportedEncodingException {
+        final Map<ArchivePath, Node> content = new TreeMap<ArchivePath, Node>(archive.getContent());
+        for (final Map.Entry<ArchivePath, Node> node : content.entrySet()) {
+            final Asset asset = node.getValue().getAsset();
+            if (asset == null) { // folder
+                continue;
+            }
+
+            digest.update(node.getKey().get().getBytes("UTF-8"));
+            digest.update((byte) 0);
+            if (ArchiveAsset.class.isInstance(asset)) {
+                updateDigest(digest, ArchiveAsset.class.cast(asset).getArchive());
+            } else {
+                digest.update(slurp(asset.openStream()));
+            }
+            digest.update((byte) 0);
+        }
+    }
+
+    private static void addConfiguration(final Map<String, String> resources, final CucumberConfiguration cucumberConfiguration, final boolean report, final String reportDirectory,
+                                         final String deploymentFingerprint) {
         final StringBuilder config = new StringBuilder();
         config.append(CucumberConfiguration.COLORS).append("=").append(cucumberConfiguration.isColorized()).append("\n")
-                .append(CucumberConfiguration.REPORTABLE).append("=").append(report).append("\n")
-                .append(CucumberConfiguration.REPORTABLE_PATH).append("=").append(reportDirectory).append("\n");
+                // failed scenarios are read from the reports so they are always written in rerun modes
+                .append(CucumberConfiguration.REPORTABLE).append("=").append(report || CucumberConfiguration.isRerunFailed(cucumberConfiguration.getRerunFailed())).append("\n")
+                .append(CucumberConfiguration.RERUN_FAILED).append("=").append(cucumberConfiguration.getRerunFailed()).append("\n")
+                .append(CucumberConfiguration.NDJSON_REPORT).append("=").append(cucumberConfiguration.isNdjsonReport()).append("\n")
+                .append(CucumberConfiguration.REPORTABLE_PATH).append("=").append(reportDirectory).append("\n")
+                .append(CucumberConfiguration.FEATURE_THREADS).append("=").append(cucumberConfiguration.getFeatureThreads()).append("\n")
+                .append(CucumberConfiguration.SCENARIO_THREADS).append("=").append(cucumberConfiguration.getScenarioThreads()).append("\n")
+                .append(CucumberConfiguration.SHARD_INDEX).append("=").append(cucumberConfiguration.getShardIndex()).append("\n")
+                .append(CucumberConfiguration.SHARD_COUNT).append("=").append(cucumberConfiguration.getShardCount()).append("\n")
+                .append(CucumberConfiguration.GLUE_SCOPE).append("=").append(cucumberConfiguration.getGlueScope().name()).append("\n")
+                .append(CucumberConfiguration.LAZY_GLUES).append("=").append(cucumberConfiguration.isLazyGlues()).append("\n")
+                .append(CucumberConfiguration.METRICS).append("=").append(cucumberConfiguration.isMetrics() || cucumberConfiguration.isMetricsJmx()).append("\n")
+                .append(CucumberConfiguration.METRICS_JMX).append("=").append(cucumberConfiguration.isMetricsJmx()).append("\n");
+        if (deploymentFingerprint != null) { // server side can't resolve a relative path
+            config.append(CucumberConfiguration.INCREMENTAL).append("=true\n")
+                    .append(CucumberConfiguration.INCREMENTAL_DIRECTORY).append("=")
+                    .append(new File(cucumberConfiguration.getIncrementalDirectory()).getAbsolutePath().replace('\\', '/')).append("\n")
+                    .append(CucumberConfiguration.DEPLOYMENT_FINGERPRINT).append("=").append(deploymentFingerprint).append("\n");
+        }
         if (cucumberConfiguration.hasOptions()) {
             config.append(CucumberConfiguration.OPTIONS).append("=").append(cucumberConfiguration.getOptions());
         }
 
-        resourceJar.addAsResource(new StringAsset(config.toString()), ClientServerFiles.CONFIG);
+        resources.put(ClientServerFiles.CONFIG, config.toString());
     }
 
     private static void addCucumberAnnotations(final String ln, final JavaArchive resourceJar) {
@@ -166,8 +347,8 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
             synchronized (CucumberArchiveProcessor.class) {
                 if (scannedAnnotations == null) {
                     final StringBuilder builder = new StringBuilder();
-                    for (final Class<? extends Annotation> annotation : CucumberLifecycle.cucumberAnnotations()) {
-                        builder.append(annotation.getName()).append(ln);
+                    for (final String annotation : CucumberLifecycle.cucumberAnnotationNames()) {
+                        builder.append(annotation).append(ln);
                     }
                     scannedAnnotations = new StringAsset(builder.toString());
                 }
@@ -176,8 +357,11 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
         resourceJar.addAsResource(scannedAnnotations, ClientServerFiles.ANNOTATION_LIST);
     }
 
-    private static void addFeatures(final Map<String, Collection<URL>> featureUrls, final String ln, final JavaArchive resourceJar) {
+    private static void addFeatures(final Class<?> javaClass, final boolean suite, final Map<String, Collection<URL>> featureUrls, final String ln, final Map<String, String> resources,
+                                    final Map<String, byte[]> asts, final CucumberConfiguration cucumberConfiguration) {
         final StringBuilder featuresPaths = new StringBuilder();
+        final boolean sharded = Shards.isActive(cucumberConfiguration.getShardCount());
+        final List<Object> filters = sharded ? Features.createFilters(javaClass) : null;
 
         for (final Map.Entry<String, Collection<URL>> feature : featureUrls.entrySet()) {
             final Collection<URL> features = feature.getValue();
@@ -189,51 +373,101 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
             final String key = feature.getKey();
 
             if (size == 1) {
-                final Asset featureAsset = new StringAsset(new String(slurp(features.iterator().next())));
-                resourceJar.addAsResource(featureAsset, key);
-                featuresPaths.append(key).append(ln);
+                final byte[] content = slurp(features.iterator().next());
+                final GherkinAst ast = parse(key, content);
+                final String path = sharded ? shard(key, ast, filters, cucumberConfiguration) : key;
+                if (path == null) {
+                    continue;
+                }
+                resources.put(key, new String(content));
+                asts.put(GherkinAst.resourceName(new PathWithLines(key).path), ast.toBytes());
+                featuresPaths.append(path).append(ln);
             } else {
                 for (final URL url : features) {
-                    final Asset featureAsset = new StringAsset(new String(slurp(url)));
+                    final byte[] content = slurp(url);
                     final String target = key + featureName(url);
-                    resourceJar.addAsResource(featureAsset, target);
-                    featuresPaths.append(target).append(ln);
+                    final GherkinAst ast = parse(target, content);
+                    final String path = sharded ? shard(target, ast, filters, cucumberConfiguration) : target;
+                    if (path == null) {
+                        continue;
+                    }
+                    resources.put(target, new String(content));
+                    asts.put(GherkinAst.resourceName(new PathWithLines(target).path), ast.toBytes());
+                    featuresPaths.append(path).append(ln);
                 }
             }
         }
 
-        resourceJar.addAsResource(new StringAsset(featuresPaths.toString()), ClientServerFiles.FEATURES_LIST);
+        resources.put(listPath(javaClass, suite, ClientServerFiles.FEATURES_LIST), featuresPaths.toString());
+    }
+
+    // parsed once on client side: syntax errors fail before the deployment and the container doesn't parse it again
+    private static GherkinAst parse(final String key, final byte[] content) {
+        return GherkinAst.parse(new PathWithLines(key).path, content);
+    }
+
+    // returns the feature path with the lines of this shard or null if no scenario of the feature belongs to this shard
+    private static String shard(final String key, final GherkinAst ast, final List<Object> filters, final CucumberConfiguration cucumberConfiguration) {
+        final PathWithLines pathWithLines = new PathWithLines(key);
+        final List<Long> lines = Shards.select(
+                pathWithLines.path, ast,
+                pathWithLines.lines.isEmpty() ? filters : new ArrayList<Object>(pathWithLines.lines), // gherkin doesn't mix filter types
+                cucumberConfiguration.getShardIndex(), cucumberConfiguration.getShardCount());
+        if (lines.isEmpty()) {
+            return null;
+        }
+        return Shards.withLines(pathWithLines.path, lines);
     }
 
     private static void enrichWithDefaultCucumber(final LibraryContainer<?> libraryContainer) {
-        libraryContainer.addAsLibraries(
-                jarLocation(Mapper.class),
-                jarLocation(ResourceLoaderClassFinder.class),
-                jarLocation(ConverterRegistry.class),
-                jarLocation(JavaBackend.class));
-        for (final String potential : asList(
-                "cucumber.api.junit.Cucumber",
-                "cucumber.api.testng.TestNGCucumberRunner",
-                "cucumber.runtime.java8.LambdaGlueBase")) {
-            try {
-                libraryContainer.addAsLibraries(jarLocation(Thread.currentThread().getContextClassLoader().loadClass(potential)));
-            } catch (final Throwable e) {
-                // no-op
+        synchronized (CucumberArchiveProcessor.class) {
+            if (cucumberLibraries == null) {
+                final Collection<File> libraries = new ArrayList<File>(asList(
+                        jarLocation(Mapper.class),
+                        jarLocation(ResourceLoaderClassFinder.class),
+                        jarLocation(ConverterRegistry.class),
+                        jarLocation(JavaBackend.class)));
+                for (final String potential : asList(
+                        "cucumber.api.junit.Cucumber",
+                        "cucumber.api.testng.TestNGCucumberRunner",
+                        "cucumber.runtime.java8.LambdaGlueBase")) {
+                    try {
+                        libraries.add(jarLocation(Thread.currentThread().getContextClassLoader().loadClass(potential)));
+                    } catch (final Throwable e) {
+                        // no-op
+                    }
+                }
+                cucumberLibraries = libraries.toArray(new File[libraries.size()]);
             }
         }
+        libraryContainer.addAsLibraries(cucumberLibraries);
     }
 
-    private static void enrichWithGlues(final Class<?> javaClass, final LibraryContainer<?> libraryContainer, final String ln) {
-        final Collection<Class<?>> glues = Glues.findGlues(javaClass);
-        final StringBuilder gluesStr = new StringBuilder();
-        if (!glues.isEmpty()) {
-            final JavaArchive gluesJar = create(JavaArchive.class, "cukespace-glues.jar");
+    private static void enrichWithGlues(final Collection<Class<?>> testClasses, final boolean suite, final LibraryContainer<?> libraryContainer, final String ln) {
+        final JavaArchive gluesJar = create(JavaArchive.class, "cukespace-glues.jar");
+        boolean hasGlues = false;
+        for (final Class<?> javaClass : testClasses) {
+            final Collection<Class<?>> glues = Glues.findGlues(javaClass);
+            if (glues.isEmpty()) {
+                continue;
+            }
+            hasGlues = true;
 
             { // glues txt file
+                final StringBuilder gluesStr = new StringBuilder();
                 for (final Class<?> g : glues) {
                     gluesStr.append(g.getName()).append(ln);
                 }
-                gluesJar.add(new StringAsset(gluesStr.toString()), ClientServerFiles.GLUES_LIST);
+                gluesJar.add(new StringAsset(gluesStr.toString()), listPath(javaClass, suite, ClientServerFiles.GLUES_LIST));
+            }
+
+            { // hooks and step definitions so the container doesn't scan annotations
+                for (final Class<?> g : glues) {
+                    final String index = GlueIndex.resourceName(g);
+                    if (!gluesJar.contains(index)) {
+                        gluesJar.add(new ByteArrayAsset(GlueIndex.create(g)), index);
+                    }
+                }
             }
 
             { // classes
@@ -248,19 +482,44 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
                     }
                 }
             }
+        }
 
+        if (hasGlues) {
             libraryContainer.addAsLibrary(gluesJar);
         }
     }
 
+    private static String listPath(final Class<?> javaClass, final boolean suite, final String list) {
+        if (suite) {
+            return ClientServerFiles.CLASSES_FOLDER + javaClass.getName() + '/' + list;
+        }
+        return list;
+    }
+
     private static void enrichWithCukeSpace(final LibraryContainer<?> libraryContainer, final boolean junit) {
+        synchronized (CucumberArchiveProcessor.class) {
+            if (junit) {
+                if (cukespaceJunitJar == null) {
+                    cukespaceJunitJar = createCukeSpaceJar(true);
+                }
+                libraryContainer.addAsLibrary(cukespaceJunitJar);
+            } else {
+                if (cukespaceTestNGJar == null) {
+                    cukespaceTestNGJar = createCukeSpaceJar(false);
+                }
+                libraryContainer.addAsLibrary(cukespaceTestNGJar);
+            }
+        }
+    }
+
+    private static JavaArchive createCukeSpaceJar(final boolean junit) {
         final JavaArchive archive = create(JavaArchive.class, "cukespace-core.jar")
                 .addAsServiceProvider(RemoteLoadableExtension.class, CucumberContainerExtension.class)
                 .addPackage(ArquillianBackend.class.getPackage())
                 .addPackage(cucumber.runtime.arquillian.api.Glues.class.getPackage())
                 .addPackage(StepEvent.class.getPackage())
-                .addClasses(NotCloseablePrintStream.class, CucumberReporter.class, CucumberLifecycle.class, BaseCukeSpace.class)
-                .addClasses(CucumberConfiguration.class, CucumberContainerExtension.class, Features.class, Glues.class)
+                .addClasses(NotCloseablePrintStream.class, CucumberReporter.class, JsonReport.class, NdjsonReport.class, MetricsReport.class, CucumberLifecycle.class, AnnotationCatalogue.class, BaseCukeSpace.class)
+                .addClasses(CucumberConfiguration.class, CucumberContainerExtension.class, Features.class, FeatureElements.class, Shards.class, GherkinAst.class, ScenarioCache.class, FailedScenarios.class, Glues.class, CompiledGlueIndex.class)
                 .addPackage(ClientServerFiles.class.getPackage());
         if (junit) {
             archive.addClasses(ArquillianCucumber.class, CukeSpace.class, ArquillianCucumber.InstanceControlledFrameworkMethod.class);
@@ -270,7 +529,7 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
                     cucumber.runtime.arquillian.testng.CukeSpace.TestNGCukeSpace.class,
                     cucumber.runtime.arquillian.testng.CukeSpace.FormaterReporterFacade.class);
         }
-        libraryContainer.addAsLibrary(archive);
+        return archive;
     }
 
     private static void tryToAdd(final Collection<ArchivePath> paths, final LibraryContainer<?> container, final String exclusion, final String... classes) {
@@ -278,7 +537,7 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
 
         try { // if scala dsl is here, add it
             for (final String clazz : classes) {
-                final File file = jarLocation(load(clazz));
+                final File file = libraryLocation(clazz);
 
                 boolean found = false;
                 for (final ArchivePath ap : paths) {
@@ -300,6 +559,26 @@ public class CucumberArchiveProcessor implements ApplicationArchiveProcessor {
         container.addAsLibraries(files.toArray(new File[files.size()]));
     }
 
+    // null is cached as well to not retry missing optional libraries for each test class
+    private static File libraryLocation(final String clazz) {
+        synchronized (CucumberArchiveProcessor.class) {
+            if (!LIBRARIES.containsKey(clazz)) {
+                File file;
+                try {
+                    file = jarLocation(load(clazz));
+                } catch (final Exception e) {
+                    file = null;
+                }
+                LIBRARIES.put(clazz, file);
+            }
+            final File file = LIBRARIES.get(clazz);
+            if (file == null) {
+                throw new IllegalStateException("Can't find " + clazz);
+            }
+            return file;
+        }
+    }
+
     private static String featureName(final URL url) {
         // file
         final File f = new File(url.getFile());
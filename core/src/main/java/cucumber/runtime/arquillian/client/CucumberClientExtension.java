@@ -13,6 +13,7 @@ public class CucumberClientExtension implements LoadableExtension {
         builder.service(ApplicationArchiveProcessor.class, CucumberArchiveProcessor.class)
             .observer(CucumberLifecycle.class)
             .observer(CucumberConfigurationProducer.class)
+            .observer(CucumberSuiteDeployer.class)
             .observer(CucumberReporter.class)
             .observer(EventHelper.class);
         if (PersistenceExtensionIntegration.isOn()) {
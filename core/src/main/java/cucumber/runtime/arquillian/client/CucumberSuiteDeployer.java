@@ -0,0 +1,355 @@
+package cucumber.runtime.arquillian.client;
+
+import cucumber.runtime.arquillian.backend.ArquillianBackend;
+import cucumber.runtime.arquillian.config.CucumberConfiguration;
+import org.jboss.arquillian.container.spi.client.deployment.DeploymentScenario;
+import org.jboss.arquillian.container.spi.event.DeployManagedDeployments;
+import org.jboss.arquillian.container.spi.event.UnDeployManagedDeployments;
+import org.jboss.arquillian.container.spi.event.container.AfterUnDeploy;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.container.test.impl.client.deployment.event.GenerateDeployment;
+import org.jboss.arquillian.core.api.Event;
+import org.jboss.arquillian.core.api.Instance;
+import org.jboss.arquillian.core.api.InstanceProducer;
+import org.jboss.arquillian.core.api.annotation.Inject;
+import org.jboss.arquillian.core.api.annotation.Observes;
+import org.jboss.arquillian.core.spi.EventContext;
+import org.jboss.arquillian.test.spi.TestClass;
+import org.jboss.arquillian.test.spi.annotation.ClassScoped;
+import org.jboss.arquillian.test.spi.context.ClassContext;
+import org.jboss.arquillian.test.spi.event.suite.AfterSuite;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import static cucumber.runtime.arquillian.locator.JarLocation.jarLocation;
+import static cucumber.runtime.arquillian.shared.IOs.slurp;
+
+// when suiteDeployment is active, cukespace test classes (CukeSpace/ArquillianCucumber runners, testng CukeSpace)
+// of the same folder/jar scheduled by the current run and using the same @Deployment method (inherited from a common
+// parent for instance) share the deployment of the first one: it is deployed once and undeployed at the end of the suite
+public class CucumberSuiteDeployer {
+    private static final Logger LOGGER = Logger.getLogger(CucumberSuiteDeployer.class.getName());
+    private static final String[] RUNNERS = {
+            "cucumber/runtime/arquillian/CukeSpace", "cucumber/runtime/arquillian/ArquillianCucumber", "cucumber/runtime/arquillian/testng/CukeSpace"
+    };
+
+    @Inject
+    private Instance<CucumberConfiguration> configuration;
+
+    @Inject
+    @ClassScoped
+    private InstanceProducer<DeploymentScenario> deploymentScenario;
+
+    @Inject
+    @ClassScoped
+    private InstanceProducer<SuiteClasses> suiteClasses; // read by CucumberArchiveProcessor
+
+    @Inject
+    private Instance<ClassContext> classContext;
+
+    @Inject
+    private Event<UnDeployManagedDeployments> undeployEvent;
+
+    private final Collection<File> scannedLocations = new HashSet<File>();
+    private final Map<Class<?>, Method> members = new HashMap<Class<?>, Method>();
+    private final Map<Method, Collection<Class<?>>> groups = new HashMap<Method, Collection<Class<?>>>();
+    private final Map<Method, Suite> suites = new LinkedHashMap<Method, Suite>();
+    private Suite current; // suite of the running test class if any
+    private boolean undeployingSuites;
+
+    public void generate(final @Observes EventContext<GenerateDeployment> context) {
+        current = null;
+        if (!configuration.get().isSuiteDeployment()) {
+            context.proceed();
+            return;
+        }
+
+        final Class<?> javaClass = context.getEvent().getTestClass().getJavaClass();
+        final Method method = findDeploymentMethod(javaClass);
+        if (method == null) { // not shared
+            context.proceed();
+            return;
+        }
+
+        Suite suite = suites.get(method);
+        if (suite == null) {
+            suiteClasses.set(new SuiteClasses(groups.get(method)));
+            context.proceed();
+            suite = new Suite(javaClass, deploymentScenario.get());
+            suites.put(method, suite);
+            LOGGER.info("Deployment of " + javaClass.getName() + " shared with " + groups.get(method).size() + " test classes");
+        } else {
+            deploymentScenario.set(suite.scenario);
+        }
+        current = suite;
+    }
+
+    public void deploy(final @Observes EventContext<DeployManagedDeployments> context) {
+        if (current == null) {
+            context.proceed();
+            return;
+        }
+        if (!current.deployed) {
+            context.proceed();
+            current.deployed = true;
+        }
+    }
+
+    public void undeploy(final @Observes EventContext<UnDeployManagedDeployments> context) {
+        if (current == null || undeployingSuites) {
+            context.proceed();
+        }
+    }
+
+    public void undeploySuites(final @Observes EventContext<AfterSuite> context) {
+        undeployingSuites = true;
+        try {
+            for (final Suite suite : suites.values()) {
+                if (!suite.deployed) {
+                    continue;
+                }
+
+                final ClassContext ctx = classContext.get();
+                ctx.activate(suite.owner);
+                try {
+                    deploymentScenario.set(suite.scenario);
+                    undeployEvent.fire(new UnDeployManagedDeployments());
+                } finally {
+                    ctx.deactivate();
+                    ctx.destroy(suite.owner);
+                }
+            }
+        } finally {
+            undeployingSuites = false;
+            suites.clear();
+            current = null;
+            context.proceed();
+        }
+    }
+
+    // suite scoped glues of an embedded deployment outlive it otherwise (a remote one drops them with its classloader)
+    public void releaseGlues(final @Observes AfterUnDeploy event) {
+        ArquillianBackend.undeployed(event.getDeployment().getArchive().getId());
+    }
+
+    // scans the location (folder or jar) of the test class to find cukespace test classes sharing its @Deployment method,
+    // only the classes referencing a cukespace runner are loaded
+    private Method findDeploymentMethod(final Class<?> javaClass) {
+        final File location = jarLocation(javaClass);
+        if (scannedLocations.add(location)) {
+            final ClassLoader loader = javaClass.getClassLoader();
+            final Map<Method, Collection<Class<?>>> found = new HashMap<Method, Collection<Class<?>>>();
+            for (final String name : candidates(location)) {
+                if (!isScheduled(name)) {
+                    continue;
+                }
+
+                final Class<?> clazz;
+                try {
+                    clazz = Class.forName(name, false, loader);
+                } catch (final ClassNotFoundException e) {
+                    LOGGER.warning("Can't load " + name + ", it doesn't share a suite deployment: " + e.getMessage());
+                    continue;
+                } catch (final LinkageError e) {
+                    LOGGER.warning("Can't load " + name + ", it doesn't share a suite deployment: " + e.getMessage());
+                    continue;
+                }
+                if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers()) || !isCukeSpace(clazz)) {
+                    continue;
+                }
+                final Method[] methods = new TestClass(clazz).getMethods(Deployment.class);
+                if (methods.length != 1) {
+                    continue;
+                }
+                final Method method = methods[0];
+
+                Collection<Class<?>> group = found.get(method);
+                if (group == null) {
+                    group = new ArrayList<Class<?>>();
+                    found.put(method, group);
+                }
+                group.add(clazz);
+            }
+
+            for (final Map.Entry<Method, Collection<Class<?>>> group : found.entrySet()) {
+                if (group.getValue().size() < 2) {
+                    continue;
+                }
+                groups.put(group.getKey(), group.getValue());
+                for (final Class<?> member : group.getValue()) {
+                    members.put(member, group.getKey());
+                }
+            }
+        }
+        return members.get(javaClass);
+    }
+
+    // junit runner extending ArquillianCucumber or testng CukeSpace child, checked by name since junit or testng is missing
+    private static boolean isCukeSpace(final Class<?> clazz) {
+        for (final Annotation annotation : clazz.getAnnotations()) {
+            if ("org.junit.runner.RunWith".equals(annotation.annotationType().getName())) {
+                try {
+                    return extendsClass(Class.class.cast(annotation.annotationType().getMethod("value").invoke(annotation)),
+                            "cucumber.runtime.arquillian.ArquillianCucumber");
+                } catch (final Exception e) {
+                    return false;
+                }
+            }
+        }
+        return extendsClass(clazz.getSuperclass(), "cucumber.runtime.arquillian.testng.CukeSpace");
+    }
+
+    private static boolean extendsClass(final Class<?> clazz, final String parent) {
+        Class<?> current = clazz;
+        while (current != null && current != Object.class) {
+            if (parent.equals(current.getName())) {
+                return true;
+            }
+            current = current.getSuperclass();
+        }
+        return false;
+    }
+
+    // when tests are selected (surefire -Dtest=...) classes which don't run don't share the deployment
+    private static boolean isScheduled(final String name) {
+        final String filter = System.getProperty("test");
+        if (filter == null || filter.trim().isEmpty()) {
+            return true;
+        }
+
+        final String simpleName = name.substring(name.lastIndexOf('.') + 1);
+        for (final String value : filter.split(",")) {
+            String pattern = value.trim();
+            if (pattern.isEmpty() || pattern.startsWith("!")) {
+                continue;
+            }
+            final int methodSeparator = pattern.indexOf('#');
+            if (methodSeparator >= 0) {
+                pattern = pattern.substring(0, methodSeparator);
+            }
+            pattern = pattern.replace("**/", "").replace(".java", "").replace(".class", "").replace('/', '.');
+            final Pattern regex = Pattern.compile(pattern.replace(".", "\\.").replace("*", ".*"));
+            if (regex.matcher(simpleName).matches() || regex.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // classes of the location referencing a cukespace runner (constant pool), the others are not loaded
+    private static Collection<String> candidates(final File location) {
+        final Collection<String> names = new ArrayList<String>();
+        if (location.isDirectory()) {
+            addCandidates(location, "", names);
+        } else if (location.isFile()) {
+            JarFile jar = null;
+            try {
+                jar = new JarFile(location);
+                final Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final JarEntry entry = entries.nextElement();
+                    if (isTopLevelClass(entry.getName()) && referencesRunner(slurp(jar.getInputStream(entry)))) {
+                        names.add(className(entry.getName()));
+                    }
+                }
+            } catch (final IOException e) {
+                LOGGER.warning("Can't scan " + location + ": " + e.getMessage());
+            } finally {
+                if (jar != null) {
+                    try {
+                        jar.close();
+                    } catch (final IOException e) {
+                        // no-op
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void addCandidates(final File folder, final String prefix, final Collection<String> names) {
+        final File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (final File child : children) {
+            final String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                addCandidates(child, path + '/', names);
+            } else if (isTopLevelClass(path)) {
+                try {
+                    if (referencesRunner(slurp(new FileInputStream(child)))) {
+                        names.add(className(path));
+                    }
+                } catch (final IOException e) {
+                    LOGGER.warning("Can't read " + child + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isTopLevelClass(final String path) {
+        return path.endsWith(".class") && !path.contains("$");
+    }
+
+    private static String className(final String path) {
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+    // class names are stored as (modified) utf-8 in the constant pool, ascii for these ones
+    private static boolean referencesRunner(final byte[] bytes) {
+        final String content;
+        try {
+            content = new String(bytes, "ISO-8859-1");
+        } catch (final UnsupportedEncodingException e) {
+            return true;
+        }
+        for (final String runner : RUNNERS) {
+            if (content.contains(runner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // test classes sharing the deployment being generated
+    public static class SuiteClasses {
+        private final Collection<Class<?>> classes;
+
+        private SuiteClasses(final Collection<Class<?>> classes) {
+            this.classes = classes;
+        }
+
+        public Collection<Class<?>> getClasses() {
+            return classes;
+        }
+    }
+
+    private static class Suite {
+        private final Class<?> owner;
+        private final DeploymentScenario scenario;
+        private boolean deployed;
+
+        private Suite(final Class<?> owner, final DeploymentScenario scenario) {
+            this.owner = owner;
+            this.scenario = scenario;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package cucumber.runtime.arquillian.config;
 
+import cucumber.runtime.arquillian.api.GlueScope;
+
 import java.io.File;
 import java.util.HashMap;
 import java.util.Locale;
@@ -15,6 +17,26 @@ public class CucumberConfiguration {
     public static final String REPORTABLE_PATH = "reportablePath";
     public static final String OPTIONS = "options";
     public static final String FEATURE_HOME = "featureHome";
+    public static final String FEATURE_THREADS = "featureThreads";
+    public static final String SCENARIO_THREADS = "scenarioThreads";
+    public static final String SHARD_INDEX = "shardIndex";
+    public static final String SHARD_COUNT = "shardCount";
+    public static final String SUITE_DEPLOYMENT = "suiteDeployment";
+    public static final String FEATURE_INDEX = "featureIndex";
+    public static final String INCREMENTAL = "incremental";
+    public static final String INCREMENTAL_DIRECTORY = "incrementalDirectory";
+    public static final String RERUN_FAILED = "rerunFailed";
+    public static final String RERUN_FAILED_FIRST = "first";
+    public static final String RERUN_FAILED_ONLY = "only";
+    public static final String NDJSON_REPORT = "ndjsonReport";
+    public static final String REPORT_THREADS = "reportThreads";
+    public static final String ASYNC_REPORT = "asyncReport";
+    public static final String ASYNC_REPORT_TIMEOUT = "asyncReportTimeout";
+    public static final String GLUE_SCOPE = "glueScope";
+    public static final String LAZY_GLUES = "lazyGlues";
+    public static final String METRICS = "metrics";
+    public static final String METRICS_JMX = "metricsJmx";
+    public static final String DEPLOYMENT_FINGERPRINT = "deploymentFingerprint"; // computed per deployment, not a configuration
 
     private boolean report; // jenkins report
     private boolean generateDocs; // cukedoctor report
@@ -25,6 +47,23 @@ public class CucumberConfiguration {
     private String docsDirectory;
     private String options;
     private String featureHome;
+    private int featureThreads = 1; // <= 1 means features are run sequentially on the protocol thread
+    private int scenarioThreads = 1; // > 1 splits features by scenario/example row and runs them concurrently
+    private int shardIndex = 0; // 0 based index of this JVM when scenarios are partitioned across shardCount JVMs
+    private int shardCount = 1;
+    private boolean suiteDeployment; // test classes sharing their @Deployment method share a single deployment
+    private boolean featureIndex; // persist resolved features under tempDir
+    private boolean incremental; // skip scenarios which passed and didn't change since
+    private String incrementalDirectory;
+    private String rerunFailed; // first or only, driven by the previous reports
+    private boolean ndjsonReport; // event stream next to the json report
+    private int reportThreads; // html report and documentation generation pool size
+    private boolean asyncReport; // generate reports in background instead of blocking container stop
+    private long asyncReportTimeout; // seconds JVM exit waits for background reports, <= 0 doesn't wait
+    private GlueScope.Scope glueScope = GlueScope.Scope.CLASS; // of glues without @GlueScope
+    private boolean lazyGlues = false; // create glues on their first step/hook when features run on the protocol thread
+    private boolean metrics; // timing histograms next to the json report
+    private boolean metricsJmx; // and as a MBean
 
     /**
      * directory to dump resource loader from loaders
@@ -108,6 +147,74 @@ public class CucumberConfiguration {
         return featureHome;
     }
 
+    public int getFeatureThreads() {
+        return featureThreads;
+    }
+
+    public int getScenarioThreads() {
+        return scenarioThreads;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public boolean isNdjsonReport() {
+        return ndjsonReport;
+    }
+
+    public int getReportThreads() {
+        return reportThreads;
+    }
+
+    public boolean isAsyncReport() {
+        return asyncReport;
+    }
+
+    public long getAsyncReportTimeout() {
+        return asyncReportTimeout;
+    }
+
+    public GlueScope.Scope getGlueScope() {
+        return glueScope;
+    }
+
+    public boolean isLazyGlues() {
+        return lazyGlues;
+    }
+
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    public boolean isMetricsJmx() {
+        return metricsJmx;
+    }
+
+    public String getRerunFailed() {
+        return rerunFailed;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public String getIncrementalDirectory() {
+        return incrementalDirectory;
+    }
+
+    public boolean isFeatureIndex() {
+        return featureIndex;
+    }
+
+    public boolean isSuiteDeployment() {
+        return suiteDeployment;
+    }
+
     public boolean arePersistenceEventsActivated() {
         return persistenceEventsActivated;
     }
@@ -116,6 +223,11 @@ public class CucumberConfiguration {
         return new File(path, clazz.getName() + ".json");
     }
 
+    // rerunFailed value reading the previous report
+    public static boolean isRerunFailed(final String mode) {
+        return RERUN_FAILED_FIRST.equals(mode) || RERUN_FAILED_ONLY.equals(mode);
+    }
+
     public static CucumberConfiguration from(final Map<String, String> properties) {
         synchronized (CONFIGURATION) { // could it really be multithreaded?
             reset();
@@ -153,6 +265,63 @@ public class CucumberConfiguration {
             if (properties.containsKey(FEATURE_HOME)) {
                 CONFIGURATION.featureHome = properties.get(FEATURE_HOME);
             }
+            if (properties.containsKey(FEATURE_THREADS)) {
+                CONFIGURATION.featureThreads = Integer.parseInt(properties.get(FEATURE_THREADS).trim());
+            }
+            if (properties.containsKey(SCENARIO_THREADS)) {
+                CONFIGURATION.scenarioThreads = Integer.parseInt(properties.get(SCENARIO_THREADS).trim());
+            }
+            if (properties.containsKey(SHARD_COUNT)) {
+                CONFIGURATION.shardCount = Integer.parseInt(properties.get(SHARD_COUNT).trim());
+            }
+            if (properties.containsKey(SHARD_INDEX)) {
+                CONFIGURATION.shardIndex = Integer.parseInt(properties.get(SHARD_INDEX).trim());
+            }
+            if (properties.containsKey(INCREMENTAL)) {
+                CONFIGURATION.incremental = Boolean.parseBoolean(properties.get(INCREMENTAL));
+            }
+            if (properties.containsKey(INCREMENTAL_DIRECTORY)) {
+                CONFIGURATION.incrementalDirectory = properties.get(INCREMENTAL_DIRECTORY);
+            }
+            if (properties.containsKey(NDJSON_REPORT)) {
+                CONFIGURATION.ndjsonReport = Boolean.parseBoolean(properties.get(NDJSON_REPORT));
+            }
+            if (properties.containsKey(REPORT_THREADS)) {
+                CONFIGURATION.reportThreads = Integer.parseInt(properties.get(REPORT_THREADS).trim());
+            }
+            if (properties.containsKey(ASYNC_REPORT)) {
+                CONFIGURATION.asyncReport = Boolean.parseBoolean(properties.get(ASYNC_REPORT));
+            }
+            if (properties.containsKey(ASYNC_REPORT_TIMEOUT)) {
+                CONFIGURATION.asyncReportTimeout = Long.parseLong(properties.get(ASYNC_REPORT_TIMEOUT).trim());
+            }
+            if (properties.containsKey(GLUE_SCOPE)) {
+                CONFIGURATION.glueScope = glueScope(properties.get(GLUE_SCOPE));
+            }
+            if (properties.containsKey(LAZY_GLUES)) {
+                CONFIGURATION.lazyGlues = Boolean.parseBoolean(properties.get(LAZY_GLUES));
+            }
+            if (properties.containsKey(METRICS)) {
+                CONFIGURATION.metrics = Boolean.parseBoolean(properties.get(METRICS));
+            }
+            if (properties.containsKey(METRICS_JMX)) {
+                CONFIGURATION.metricsJmx = Boolean.parseBoolean(properties.get(METRICS_JMX));
+            }
+            if (properties.containsKey(RERUN_FAILED)) {
+                CONFIGURATION.rerunFailed = properties.get(RERUN_FAILED).trim();
+            }
+            if (properties.containsKey(FEATURE_INDEX)) {
+                CONFIGURATION.featureIndex = Boolean.parseBoolean(properties.get(FEATURE_INDEX));
+            }
+            if (properties.containsKey(SUITE_DEPLOYMENT)) {
+                CONFIGURATION.suiteDeployment = Boolean.parseBoolean(properties.get(SUITE_DEPLOYMENT));
+            }
+            if (CONFIGURATION.shardCount > 1 && (CONFIGURATION.shardIndex < 0 || CONFIGURATION.shardIndex >= CONFIGURATION.shardCount)) {
+                throw new IllegalArgumentException(SHARD_INDEX + " should be in [0, " + SHARD_COUNT + "[ but was " + CONFIGURATION.shardIndex);
+            }
+            if (!CONFIGURATION.rerunFailed.isEmpty() && !"none".equals(CONFIGURATION.rerunFailed) && !isRerunFailed(CONFIGURATION.rerunFailed)) {
+                throw new IllegalArgumentException(RERUN_FAILED + " should be none, " + RERUN_FAILED_FIRST + " or " + RERUN_FAILED_ONLY + " but was " + CONFIGURATION.rerunFailed);
+            }
 
             CONFIGURATION.original = properties;
 
@@ -168,12 +337,37 @@ public class CucumberConfiguration {
         CONFIGURATION.docsDirectory = "target/docs/";
         CONFIGURATION.tempDir = guessDefaultTempDir();
         CONFIGURATION.options = null;
+        CONFIGURATION.featureThreads = 1;
+        CONFIGURATION.scenarioThreads = 1;
+        CONFIGURATION.shardIndex = 0;
+        CONFIGURATION.shardCount = 1;
+        CONFIGURATION.suiteDeployment = false;
+        CONFIGURATION.featureIndex = false;
+        CONFIGURATION.incremental = false;
+        CONFIGURATION.rerunFailed = "";
+        CONFIGURATION.ndjsonReport = false;
+        CONFIGURATION.reportThreads = Runtime.getRuntime().availableProcessors();
+        CONFIGURATION.asyncReport = false;
+        CONFIGURATION.asyncReportTimeout = 600;
+        CONFIGURATION.glueScope = GlueScope.Scope.CLASS;
+        CONFIGURATION.lazyGlues = false;
+        CONFIGURATION.metrics = false;
+        CONFIGURATION.metricsJmx = false;
+        CONFIGURATION.incrementalDirectory = "target/cukespace/incremental/";
         CONFIGURATION.report = false;
         CONFIGURATION.generateDocs = false;
         CONFIGURATION.colorized = !System.getProperty("os.name").toLowerCase(Locale.ENGLISH).contains("win")
                                         && !System.getProperty("java.class.path").contains("idea_rt");
     }
 
+    public static GlueScope.Scope glueScope(final String value) {
+        try {
+            return GlueScope.Scope.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(GLUE_SCOPE + " should be scenario, feature, class or suite but was " + value);
+        }
+    }
+
     public static CucumberConfiguration instance() {
         return CONFIGURATION;
     }
@@ -188,8 +382,20 @@ public class CucumberConfiguration {
     	if (this.isInitialized()) {    		
             configurationProperties.setProperty(CucumberConfiguration.PERSISTENCE_EVENTS, Boolean.toString(persistenceEventsActivated));
             configurationProperties.setProperty(CucumberConfiguration.COLORS, Boolean.toString(colorized));
-            configurationProperties.setProperty(CucumberConfiguration.REPORTABLE, Boolean.toString(report || generateDocs));
+            configurationProperties.setProperty(CucumberConfiguration.REPORTABLE, Boolean.toString(report || generateDocs || isRerunFailed(rerunFailed)));
+            configurationProperties.setProperty(CucumberConfiguration.RERUN_FAILED, rerunFailed);
+            configurationProperties.setProperty(CucumberConfiguration.NDJSON_REPORT, Boolean.toString(ndjsonReport));
             configurationProperties.setProperty(CucumberConfiguration.REPORTABLE_PATH, reportDirectory);
+            configurationProperties.setProperty(CucumberConfiguration.FEATURE_THREADS, Integer.toString(featureThreads));
+            configurationProperties.setProperty(CucumberConfiguration.SCENARIO_THREADS, Integer.toString(scenarioThreads));
+            configurationProperties.setProperty(CucumberConfiguration.SHARD_INDEX, Integer.toString(shardIndex));
+            configurationProperties.setProperty(CucumberConfiguration.SHARD_COUNT, Integer.toString(shardCount));
+            configurationProperties.setProperty(CucumberConfiguration.GLUE_SCOPE, glueScope.name());
+            configurationProperties.setProperty(CucumberConfiguration.LAZY_GLUES, Boolean.toString(lazyGlues));
+            configurationProperties.setProperty(CucumberConfiguration.METRICS, Boolean.toString(metrics || metricsJmx));
+            configurationProperties.setProperty(CucumberConfiguration.METRICS_JMX, Boolean.toString(metricsJmx));
+            configurationProperties.setProperty(CucumberConfiguration.INCREMENTAL, Boolean.toString(incremental));
+            configurationProperties.setProperty(CucumberConfiguration.INCREMENTAL_DIRECTORY, new File(incrementalDirectory).getAbsolutePath());
             if (featureHome != null) {
                 configurationProperties.setProperty(CucumberConfiguration.FEATURE_HOME, featureHome);
             }
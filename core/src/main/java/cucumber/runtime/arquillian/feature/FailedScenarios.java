@@ -0,0 +1,174 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.deps.com.google.gson.JsonArray;
+import gherkin.deps.com.google.gson.JsonElement;
+import gherkin.deps.com.google.gson.JsonObject;
+import gherkin.deps.com.google.gson.JsonParseException;
+import gherkin.deps.com.google.gson.JsonParser;
+import gherkin.formatter.model.ExamplesTableRow;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// scenarios (or example rows) which failed in the previous JSON report of a test class, keyed by feature path
+public final class FailedScenarios {
+    private static final Logger LOGGER = Logger.getLogger(FailedScenarios.class.getName());
+
+    private FailedScenarios() {
+        // no-op
+    }
+
+    public static Map<String, Collection<Long>> read(final File report) {
+        final Map<String, Collection<Long>> failed = new HashMap<String, Collection<Long>>();
+        if (!report.isFile()) {
+            return failed;
+        }
+
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(report), "UTF-8");
+            final JsonElement root = new JsonParser().parse(reader);
+            if (!root.isJsonArray()) {
+                return failed;
+            }
+
+            for (final JsonElement feature : root.getAsJsonArray()) {
+                final JsonObject featureObject = feature.getAsJsonObject();
+                if (!featureObject.has("uri") || !featureObject.has("elements")) {
+                    continue;
+                }
+
+                final String uri = featureObject.get("uri").getAsString();
+                boolean failedBackground = false;
+                for (final JsonElement element : featureObject.getAsJsonArray("elements")) {
+                    final JsonObject elementObject = element.getAsJsonObject();
+                    final boolean failure = hasFailure(elementObject, "before") || hasFailure(elementObject, "steps") || hasFailure(elementObject, "after");
+                    if ("background".equals(type(elementObject))) { // reported before each scenario
+                        failedBackground = failure;
+                        continue;
+                    }
+
+                    if ((failure || failedBackground) && elementObject.has("line")) {
+                        Collection<Long> lines = failed.get(uri);
+                        if (lines == null) {
+                            lines = new LinkedHashSet<Long>();
+                            failed.put(uri, lines);
+                        }
+                        lines.add(elementObject.get("line").getAsLong());
+                    }
+                    failedBackground = false;
+                }
+            }
+        } catch (final IOException e) {
+            LOGGER.warning("Can't read " + report.getAbsolutePath() + ": " + e.getMessage());
+        } catch (final JsonParseException e) {
+            LOGGER.warning("Can't parse " + report.getAbsolutePath() + ": " + e.getMessage());
+        } catch (final IllegalStateException e) { // not the expected structure
+            LOGGER.warning("Can't parse " + report.getAbsolutePath() + ": " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    // no-op
+                }
+            }
+        }
+        return failed;
+    }
+
+    // line filters of a feature in only mode: its failed lines, restricted to the already selected ones if any
+    public static List<Object> lines(final Map<String, Collection<Long>> failed, final String path, final Collection<Long> selected) {
+        final Collection<Long> failedLines = failed.get(path);
+        if (failedLines == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Object> lines = new ArrayList<Object>(failedLines);
+        if (!selected.isEmpty()) {
+            lines.retainAll(selected);
+        }
+        return lines;
+    }
+
+    // stable sort: features with failures first and, in each of them, failed scenarios first
+    public static void failedFirst(final List<CucumberFeature> features, final Map<String, Collection<Long>> failed) {
+        for (final CucumberFeature feature : features) {
+            final Collection<Long> lines = failed.get(feature.getPath());
+            if (lines != null) {
+                Collections.sort(feature.getFeatureElements(), new Comparator<CucumberTagStatement>() {
+                    @Override
+                    public int compare(final CucumberTagStatement o1, final CucumberTagStatement o2) {
+                        return rank(hasFailed(o1, lines)) - rank(hasFailed(o2, lines));
+                    }
+                });
+            }
+        }
+        Collections.sort(features, new Comparator<CucumberFeature>() {
+            @Override
+            public int compare(final CucumberFeature o1, final CucumberFeature o2) {
+                return rank(failed.containsKey(o1.getPath())) - rank(failed.containsKey(o2.getPath()));
+            }
+        });
+    }
+
+    private static int rank(final boolean failed) {
+        return failed ? 0 : 1;
+    }
+
+    private static boolean hasFailed(final CucumberTagStatement element, final Collection<Long> lines) {
+        if (lines.contains(element.getGherkinModel().getLine().longValue())) {
+            return true;
+        }
+        if (CucumberScenarioOutline.class.isInstance(element)) {
+            for (final CucumberExamples examples : CucumberScenarioOutline.class.cast(element).getCucumberExamplesList()) {
+                for (final ExamplesTableRow row : examples.getExamples().getRows()) {
+                    if (lines.contains(row.getLine().longValue())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String type(final JsonObject element) {
+        return element.has("type") ? element.get("type").getAsString() : null;
+    }
+
+    private static boolean hasFailure(final JsonObject element, final String results) {
+        if (!element.has(results)) {
+            return false;
+        }
+
+        final JsonArray array = element.getAsJsonArray(results);
+        for (final JsonElement item : array) {
+            final JsonObject itemObject = item.getAsJsonObject();
+            if (!itemObject.has("result")) {
+                continue;
+            }
+
+            final String status = itemObject.getAsJsonObject("result").get("status").getAsString();
+            if (!"passed".equals(status) && !"skipped".equals(status)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
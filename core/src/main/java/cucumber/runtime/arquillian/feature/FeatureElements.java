@@ -0,0 +1,84 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.model.CucumberBackground;
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.model.Examples;
+import gherkin.formatter.model.ExamplesTableRow;
+import gherkin.formatter.model.ScenarioOutline;
+import gherkin.formatter.model.Step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+// splits features in single scenario (or single example row) features to be able to run them concurrently
+public final class FeatureElements {
+    private FeatureElements() {
+        // no-op
+    }
+
+    public static List<CucumberFeature> split(final List<CucumberFeature> features) {
+        final List<CucumberFeature> units = new ArrayList<CucumberFeature>();
+        for (final CucumberFeature feature : features) {
+            for (final CucumberTagStatement element : feature.getFeatureElements()) {
+                if (CucumberScenarioOutline.class.isInstance(element)) {
+                    splitOutline(feature, CucumberScenarioOutline.class.cast(element), units);
+                } else {
+                    units.add(new SingleElementFeature(feature, element));
+                }
+            }
+        }
+        return units;
+    }
+
+    private static void splitOutline(final CucumberFeature feature, final CucumberScenarioOutline outline,
+                                     final List<CucumberFeature> units) {
+        final List<CucumberExamples> examplesList = outline.getCucumberExamplesList();
+        if (examplesList.size() == 1 && examplesList.iterator().next().getExamples().getRows().size() <= 2) {
+            units.add(new SingleElementFeature(feature, outline)); // header + a single row, nothing to split
+            return;
+        }
+
+        for (final CucumberExamples cucumberExamples : examplesList) {
+            final Examples examples = cucumberExamples.getExamples();
+            final List<ExamplesTableRow> rows = examples.getRows();
+            if (rows.size() < 2) { // no example to run
+                continue;
+            }
+
+            // all outlines of a feature share the feature background
+            final CucumberBackground background = cucumberExamples.createExampleScenarios().iterator().next().getCucumberBackground();
+            for (final ExamplesTableRow row : rows.subList(1, rows.size())) {
+                final CucumberScenarioOutline rowOutline = new CucumberScenarioOutline(
+                        feature, background, ScenarioOutline.class.cast(outline.getGherkinModel()));
+                for (final Step step : outline.getSteps()) {
+                    rowOutline.step(step);
+                }
+                rowOutline.examples(new Examples(
+                        examples.getComments(), examples.getTags(), examples.getKeyword(), examples.getName(),
+                        examples.getDescription(), examples.getLine(), examples.getId(), asList(rows.get(0), row)));
+                units.add(new SingleElementFeature(feature, rowOutline));
+            }
+        }
+    }
+
+    private static class SingleElementFeature extends CucumberFeature {
+        private final List<CucumberTagStatement> elements;
+
+        private SingleElementFeature(final CucumberFeature feature, final CucumberTagStatement element) {
+            super(feature.getGherkinFeature(), feature.getPath());
+            setI18n(feature.getI18n());
+            this.elements = singletonList(element);
+        }
+
+        @Override
+        public List<CucumberTagStatement> getFeatureElements() {
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.arquillian.lifecycle.CucumberLifecycle;
+import cucumber.runtime.io.MultiLoader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+// persistent index (under tempDir) of the features resolved for a test class.
+// An entry is reused while the test class, the folders its features are looked up in and the features themselves
+// are unchanged. Features coming from custom ResourceLoaders are dumped on each run so they are never indexed.
+public final class FeatureIndex {
+    private static final Logger LOGGER = Logger.getLogger(FeatureIndex.class.getName());
+
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String FEATURES = "features";
+    private static final String MISSING = "missing";
+
+    private FeatureIndex() {
+        // no-op
+    }
+
+    public static Map<String, Collection<URL>> createFeatureMap(final String tempDir, final String featureHome,
+                                                                final Class<?> javaClass, final ClassLoader loader) {
+        if (hasCustomLoaders(javaClass)) {
+            return Features.createFeatureMap(tempDir, featureHome, javaClass, loader);
+        }
+
+        final File index = new File(tempDir, "index/" + javaClass.getName() + ".properties");
+        final String fingerprint = fingerprint(featureHome, javaClass, loader);
+        if (fingerprint != null) {
+            final Map<String, Collection<URL>> indexed = read(index, fingerprint);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+
+        final Map<String, Collection<URL>> featureUrls = Features.createFeatureMap(tempDir, featureHome, javaClass, loader);
+        if (fingerprint != null) {
+            write(index, fingerprint, featureUrls);
+        }
+        return featureUrls;
+    }
+
+    private static boolean hasCustomLoaders(final Class<?> javaClass) {
+        final cucumber.runtime.arquillian.api.Features features = javaClass.getAnnotation(cucumber.runtime.arquillian.api.Features.class);
+        return !CucumberLifecycle.resourceLoaders().isEmpty() || (features != null && features.loaders().length > 0);
+    }
+
+    // test class + folders features are searched in (their whole tree), a new feature in one of them or in a nested
+    // folder invalidates the entry
+    private static String fingerprint(final String featureHome, final Class<?> javaClass, final ClassLoader loader) {
+        final String classStamp = stamp(loader.getResource(javaClass.getName().replace('.', '/') + ".class"));
+        if (classStamp == null) {
+            return null;
+        }
+
+        final StringBuilder fingerprint = new StringBuilder(featureHome == null ? "" : featureHome).append('|').append(classStamp);
+        for (final String raw : Features.findFeatures(javaClass)) {
+            final String path = folder(raw);
+            fingerprint.append('|').append(raw)
+                    .append('|').append(stamp(new File(path)));
+            if (featureHome != null) {
+                fingerprint.append('|').append(stamp(new File(featureHome, path)));
+            }
+            try {
+                final Enumeration<URL> folders = loader.getResources(path);
+                while (folders.hasMoreElements()) {
+                    final String stamp = stamp(folders.nextElement());
+                    if (stamp == null) {
+                        return null;
+                    }
+                    fingerprint.append('|').append(stamp);
+                }
+            } catch (final IOException e) {
+                return null;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static String folder(final String raw) {
+        String path = raw;
+        if (path.startsWith(MultiLoader.CLASSPATH_SCHEME)) {
+            path = path.substring(MultiLoader.CLASSPATH_SCHEME.length());
+        }
+        final int lineIdx = path.lastIndexOf(':');
+        if (lineIdx > 0) {
+            path = path.substring(0, lineIdx);
+        }
+        if (path.endsWith(Features.EXTENSION)) {
+            final int sep = path.lastIndexOf('/');
+            return sep > 0 ? path.substring(0, sep) : "";
+        }
+        return path;
+    }
+
+    private static Map<String, Collection<URL>> read(final File index, final String fingerprint) {
+        if (!index.isFile()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(index);
+            properties.load(is);
+        } catch (final IOException e) {
+            return null;
+        } finally {
+            close(is);
+        }
+
+        if (!fingerprint.equals(properties.getProperty(FINGERPRINT))) {
+            return null;
+        }
+
+        final Map<String, Collection<URL>> featureUrls = new HashMap<String, Collection<URL>>();
+        final int size = Integer.parseInt(properties.getProperty(FEATURES, "0"));
+        for (int i = 0; i < size; i++) {
+            final Collection<URL> urls = new ArrayList<URL>();
+            for (final String url : properties.getProperty(FEATURES + '.' + i + ".urls", "").split(" ")) {
+                if (url.isEmpty()) {
+                    continue;
+                }
+                try {
+                    final URL u = new URL(url);
+                    final String stamp = stamp(u);
+                    if (stamp == null || !stamp.equals(properties.getProperty("stamp." + url))) { // updated feature
+                        return null;
+                    }
+                    urls.add(u);
+                } catch (final MalformedURLException e) {
+                    return null;
+                }
+            }
+            featureUrls.put(properties.getProperty(FEATURES + '.' + i + ".key"), urls);
+        }
+        return featureUrls;
+    }
+
+    private static void write(final File index, final String fingerprint, final Map<String, Collection<URL>> featureUrls) {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT, fingerprint);
+        properties.setProperty(FEATURES, Integer.toString(featureUrls.size()));
+
+        int i = 0;
+        for (final Map.Entry<String, Collection<URL>> feature : featureUrls.entrySet()) {
+            final StringBuilder urls = new StringBuilder();
+            for (final URL url : feature.getValue()) {
+                final String externalForm = url.toExternalForm();
+                final String stamp = stamp(url);
+                if (stamp == null) { // not a file or a jar, can't be validated
+                    return;
+                }
+                properties.setProperty("stamp." + externalForm, stamp);
+                urls.append(externalForm).append(' ');
+            }
+            properties.setProperty(FEATURES + '.' + i + ".key", feature.getKey());
+            properties.setProperty(FEATURES + '.' + i + ".urls", urls.toString());
+            i++;
+        }
+
+        final File folder = index.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            LOGGER.warning("Can't create " + folder.getAbsolutePath() + ", features won't be indexed");
+            return;
+        }
+
+        // written aside then renamed to not let concurrent builds read a partial file
+        final File tmp = new File(folder, index.getName() + '.' + System.nanoTime());
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(tmp);
+            properties.store(os, "cukespace feature index");
+        } catch (final IOException e) {
+            LOGGER.warning("Can't write " + tmp.getAbsolutePath() + ": " + e.getMessage());
+            return;
+        } finally {
+            close(os);
+        }
+        if (!tmp.renameTo(index) && (!index.delete() || !tmp.renameTo(index))) {
+            LOGGER.warning("Can't write " + index.getAbsolutePath());
+            if (!tmp.delete()) {
+                tmp.deleteOnExit();
+            }
+        }
+    }
+
+    private static String stamp(final URL url) {
+        if (url == null) {
+            return MISSING;
+        }
+        if ("file".equals(url.getProtocol())) {
+            return stamp(toFile(url));
+        }
+        if ("jar".equals(url.getProtocol())) {
+            final String spec = url.getFile();
+            final int separator = spec.indexOf('!');
+            if (separator > 0) {
+                try {
+                    return stamp(toFile(new URL(spec.substring(0, separator))));
+                } catch (final MalformedURLException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String stamp(final File file) {
+        if (!file.exists()) {
+            return MISSING;
+        }
+        if (file.isDirectory()) { // a folder is not touched when a nested file is added or updated
+            final long[] tree = new long[2]; // entries, hash
+            stampTree(file, "", tree);
+            return tree[0] + "-" + Long.toHexString(tree[1]);
+        }
+        return file.lastModified() + "-" + file.length();
+    }
+
+    private static void stampTree(final File folder, final String prefix, final long[] tree) {
+        final File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children); // listing order is not specified
+        for (final File child : children) {
+            final String path = prefix + child.getName();
+            tree[0]++;
+            tree[1] = 31 * (31 * (31 * tree[1] + path.hashCode()) + child.lastModified()) + child.length();
+            if (child.isDirectory()) {
+                stampTree(child, path + '/', tree);
+            }
+        }
+    }
+
+    private static File toFile(final URL url) {
+        try {
+            return new File(url.toURI());
+        } catch (final URISyntaxException e) {
+            return new File(url.getFile());
+        } catch (final IllegalArgumentException e) {
+            return new File(url.getFile());
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (final IOException e) {
+                // no-op
+            }
+        }
+    }
+}
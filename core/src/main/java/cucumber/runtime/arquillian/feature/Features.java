@@ -1,6 +1,7 @@
 package cucumber.runtime.arquillian.feature;
 
 import cucumber.api.CucumberOptions;
+import cucumber.runtime.arquillian.api.Tags;
 import cucumber.runtime.arquillian.lifecycle.CucumberLifecycle;
 import cucumber.runtime.io.FileResource;
 import cucumber.runtime.io.MultiLoader;
@@ -19,8 +20,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import static cucumber.runtime.arquillian.shared.IOs.dump;
 import static cucumber.runtime.arquillian.shared.IOs.slurp;
@@ -221,6 +224,33 @@ public final class Features {
         return featureUrls;
     }
 
+    public static List<Object> createFilters(final Class<?> javaClass) {
+        final List<Object> filters = new ArrayList<Object>();
+
+        { // our API
+            final Tags tags = javaClass.getAnnotation(Tags.class);
+            if (tags != null) {
+                filters.addAll(asList(tags.value()));
+            }
+        }
+
+        { // cucumber-api
+            final CucumberOptions options = javaClass.getAnnotation(CucumberOptions.class);
+            if (options != null) {
+                if (options.tags().length > 0) {
+                    filters.addAll(asList(options.tags()));
+                }
+                if (options.name().length > 0) {
+                    for (final String name : options.name()) {
+                        filters.add(Pattern.compile(name));
+                    }
+                }
+            }
+        }
+
+        return filters;
+    }
+
     private static String createClassNameSubPackage(final String name) {
         String result = name;
         if (result.endsWith("Test")) {
@@ -0,0 +1,262 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.CucumberException;
+import cucumber.runtime.FeatureBuilder;
+import cucumber.runtime.arquillian.shared.ClientServerFiles;
+import cucumber.runtime.io.Resource;
+import cucumber.runtime.model.CucumberFeature;
+import gherkin.I18n;
+import gherkin.formatter.FilterFormatter;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.model.Background;
+import gherkin.formatter.model.BasicStatement;
+import gherkin.formatter.model.Examples;
+import gherkin.formatter.model.ExamplesTableRow;
+import gherkin.formatter.model.Feature;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.ScenarioOutline;
+import gherkin.formatter.model.Step;
+import gherkin.formatter.model.Tag;
+import gherkin.parser.Parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// gherkin events of a feature parsed on client side, shipped serialized to the container which replays them
+// in a FeatureBuilder instead of parsing the feature again
+public final class GherkinAst {
+    private static final Logger LOGGER = Logger.getLogger(GherkinAst.class.getName());
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int VERSION = 1;
+
+    private final String language;
+    private final String checksum;
+    private final List<BasicStatement> events;
+
+    private GherkinAst(final String language, final String checksum, final List<BasicStatement> events) {
+        this.language = language;
+        this.checksum = checksum;
+        this.events = events;
+    }
+
+    public static String resourceName(final String path) {
+        return ClientServerFiles.AST_FOLDER + path;
+    }
+
+    // fails on syntax errors as FeatureBuilder#parse does
+    public static GherkinAst parse(final String path, final byte[] content) {
+        final String gherkin = new FeatureBuilder(new ArrayList<CucumberFeature>()).read(new BytesResource(path, content));
+        final Recorder recorder = new Recorder();
+        final Parser parser = new Parser(recorder);
+        try {
+            parser.parse(gherkin, path, 0);
+        } catch (final Exception e) {
+            throw new CucumberException(String.format("Error parsing feature file %s", path), e);
+        }
+        return new GherkinAst(parser.getI18nLanguage().getIsoCode(), checksum(gherkin), recorder.events);
+    }
+
+    // null if the content can't be read, with another gherkin version for instance
+    public static GherkinAst read(final InputStream stream) {
+        if (stream == null) {
+            return null;
+        }
+
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new GZIPInputStream(stream));
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            final String language = in.readUTF();
+            final String checksum = in.readUTF();
+            final int size = in.readInt();
+            final List<BasicStatement> events = new ArrayList<BasicStatement>(size);
+            for (int i = 0; i < size; i++) {
+                events.add(BasicStatement.class.cast(in.readObject()));
+            }
+            return new GherkinAst(language, checksum, events);
+        } catch (final Exception e) {
+            LOGGER.warning("Can't read serialized feature, it will be parsed: " + e.getMessage());
+            return null;
+        } finally {
+            try {
+                if (in != null) {
+                    in.close();
+                } else {
+                    stream.close();
+                }
+            } catch (final IOException e) {
+                // no-op
+            }
+        }
+    }
+
+    public byte[] toBytes() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            final ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes));
+            out.writeInt(VERSION);
+            out.writeUTF(language);
+            out.writeUTF(checksum);
+            out.writeInt(events.size());
+            for (final BasicStatement event : events) {
+                out.writeObject(event);
+            }
+            out.close();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // MD5 of the feature text, as FeatureBuilder features with an already parsed content are ignored
+    public String getChecksum() {
+        return checksum;
+    }
+
+    // equivalent of FeatureBuilder#parse(resource, filters) where builder populates features
+    public void replay(final FeatureBuilder builder, final List<CucumberFeature> features, final String path, final List<Object> filters) {
+        final int existing = features.size();
+        final Formatter formatter = filters.isEmpty() ? builder : new FilterFormatter(builder, filters);
+        formatter.uri(path);
+        for (final BasicStatement event : events) {
+            if (Examples.class.isInstance(event)) { // FilterFormatter filters the rows and tags in place so don't share them
+                final Examples examples = Examples.class.cast(event);
+                formatter.examples(new Examples(
+                        examples.getComments(), new ArrayList<Tag>(examples.getTags()), examples.getKeyword(), examples.getName(),
+                        examples.getDescription(), examples.getLine(), examples.getId(), new ArrayList<ExamplesTableRow>(examples.getRows())));
+            } else {
+                event.replay(formatter);
+            }
+        }
+        formatter.eof();
+
+        if (features.size() > existing) {
+            final I18n i18n = new I18n(language);
+            for (final CucumberFeature feature : features.subList(existing, features.size())) {
+                feature.setI18n(i18n);
+            }
+        }
+    }
+
+    private static String checksum(final String gherkin) {
+        try {
+            return new BigInteger(1, MessageDigest.getInstance("MD5").digest(gherkin.getBytes(UTF8))).toString(16);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Recorder implements Formatter {
+        private final List<BasicStatement> events = new ArrayList<BasicStatement>();
+
+        @Override
+        public void feature(final Feature feature) {
+            events.add(feature);
+        }
+
+        @Override
+        public void background(final Background background) {
+            events.add(background);
+        }
+
+        @Override
+        public void scenario(final Scenario scenario) {
+            events.add(scenario);
+        }
+
+        @Override
+        public void scenarioOutline(final ScenarioOutline scenarioOutline) {
+            events.add(scenarioOutline);
+        }
+
+        @Override
+        public void examples(final Examples examples) {
+            events.add(examples);
+        }
+
+        @Override
+        public void step(final Step step) {
+            events.add(step);
+        }
+
+        @Override
+        public void syntaxError(final String state, final String event, final List<String> legalEvents, final String uri, final Integer line) {
+            // no-op: the parser throws
+        }
+
+        @Override
+        public void uri(final String uri) {
+            // no-op: replayed with the path of the container
+        }
+
+        @Override
+        public void startOfScenarioLifeCycle(final Scenario scenario) {
+            // no-op
+        }
+
+        @Override
+        public void endOfScenarioLifeCycle(final Scenario scenario) {
+            // no-op
+        }
+
+        @Override
+        public void done() {
+            // no-op
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public void eof() {
+            // no-op
+        }
+    }
+
+    private static class BytesResource implements Resource {
+        private final String path;
+        private final byte[] content;
+
+        private BytesResource(final String path, final byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return path;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public String getClassName(final String extension) {
+            return path.substring(0, path.length() - extension.length()).replace('/', '.');
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.arquillian.shared.IOs;
+import cucumber.runtime.model.CucumberBackground;
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenario;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Background;
+import gherkin.formatter.model.DataTableRow;
+import gherkin.formatter.model.Examples;
+import gherkin.formatter.model.ExamplesTableRow;
+import gherkin.formatter.model.Feature;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.ScenarioOutline;
+import gherkin.formatter.model.Step;
+import gherkin.formatter.model.Tag;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+// incremental mode: remembers the fingerprint of the scenarios which passed (scenario text, glue bytecode and deployment)
+// to report them as skipped, without running them, while none of these inputs changes
+public final class ScenarioCache {
+    private static final Logger LOGGER = Logger.getLogger(ScenarioCache.class.getName());
+
+    private final File file;
+    private final String baseFingerprint;
+    private final Properties passed = new Properties();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<String, String>(); // scenarios to run
+    private final Map<String, String> scenarioByLine = new ConcurrentHashMap<String, String>(); // example rows -> outline
+    private final Set<String> cached = new HashSet<String>(); // scenarios and example rows, read only once marked
+    private final Set<String> run = Collections.synchronizedSet(new HashSet<String>());
+    private final Set<String> failed = Collections.synchronizedSet(new HashSet<String>());
+
+    public ScenarioCache(final File file, final String deploymentFingerprint, final Collection<Class<?>> glues, final ClassLoader loader) {
+        this.file = file;
+        this.baseFingerprint = deploymentFingerprint + '|' + glueFingerprint(glues, loader);
+        if (file.isFile()) {
+            InputStream is = null;
+            try {
+                is = new FileInputStream(file);
+                passed.load(is);
+            } catch (final IOException e) {
+                LOGGER.warning("Can't read " + file.getAbsolutePath() + ", running all scenarios: " + e.getMessage());
+            } finally {
+                close(is);
+            }
+        }
+    }
+
+    // marks the scenarios which passed with the same fingerprint, the runtime reports them as skipped (see isCached)
+    public void mark(final List<CucumberFeature> features) {
+        int count = 0;
+        for (final CucumberFeature feature : features) {
+            for (final CucumberTagStatement element : feature.getFeatureElements()) {
+                final String id = feature.getPath() + ':' + element.getGherkinModel().getLine();
+                final String fingerprint = fingerprint(feature, element);
+                final boolean passedBefore = fingerprint.equals(passed.getProperty(id));
+                if (passedBefore) {
+                    LOGGER.info("Scenario '" + element.getVisualName() + "' (" + id + ") cached, reporting it as skipped");
+                    cached.add(id);
+                    count++;
+                } else {
+                    fingerprints.put(id, fingerprint);
+                    scenarioByLine.put(id, id);
+                }
+                if (CucumberScenarioOutline.class.isInstance(element)) {
+                    for (final CucumberExamples examples : CucumberScenarioOutline.class.cast(element).getCucumberExamplesList()) {
+                        for (final ExamplesTableRow row : examples.getExamples().getRows()) {
+                            final String rowId = feature.getPath() + ':' + row.getLine();
+                            if (passedBefore) {
+                                cached.add(rowId);
+                            } else {
+                                scenarioByLine.put(rowId, id);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (count > 0) {
+            LOGGER.info(count + " cached scenario(s) reported as skipped");
+        }
+    }
+
+    // scenario (or example row) at this line of the feature passed with the same fingerprint
+    public boolean isCached(final String featurePath, final int line) {
+        return !cached.isEmpty() && cached.contains(featurePath + ':' + line);
+    }
+
+    // plugin tracking the scenario results, one per runtime since formatter callbacks are stateful
+    public Object newRecorder() {
+        return new Recorder();
+    }
+
+    public void store() {
+        for (final String id : run) {
+            if (failed.contains(id)) {
+                passed.remove(id);
+            } else {
+                passed.setProperty(id, fingerprints.get(id));
+            }
+        }
+
+        final File folder = file.getParentFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            LOGGER.warning("Can't create " + folder.getAbsolutePath());
+            return;
+        }
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(file);
+            passed.store(os, "cukespace passing scenarios");
+        } catch (final IOException e) {
+            LOGGER.warning("Can't write " + file.getAbsolutePath() + ": " + e.getMessage());
+        } finally {
+            close(os);
+        }
+    }
+
+    private String fingerprint(final CucumberFeature feature, final CucumberTagStatement element) {
+        final StringBuilder text = new StringBuilder(baseFingerprint);
+        appendTags(text, feature.getGherkinFeature().getTags());
+        appendTags(text, element.getGherkinModel().getTags());
+        text.append(element.getGherkinModel().getName()).append('\n');
+        if (CucumberScenarioOutline.class.isInstance(element)) {
+            final CucumberScenarioOutline outline = CucumberScenarioOutline.class.cast(element);
+            for (final CucumberExamples examples : outline.getCucumberExamplesList()) {
+                final List<CucumberScenario> scenarios = examples.createExampleScenarios();
+                if (!scenarios.isEmpty()) {
+                    appendBackground(text, scenarios.iterator().next().getCucumberBackground());
+                }
+                final Examples model = examples.getExamples();
+                appendTags(text, model.getTags());
+                for (final ExamplesTableRow row : model.getRows()) {
+                    text.append(row.getCells()).append('\n');
+                }
+            }
+            appendSteps(text, outline.getSteps());
+        } else if (CucumberScenario.class.isInstance(element)) {
+            final CucumberScenario scenario = CucumberScenario.class.cast(element);
+            appendBackground(text, scenario.getCucumberBackground());
+            appendSteps(text, scenario.getSteps());
+        }
+        return digest(text.toString());
+    }
+
+    private static void appendBackground(final StringBuilder text, final CucumberBackground background) {
+        if (background != null) {
+            appendSteps(text, background.getSteps());
+        }
+    }
+
+    private static void appendTags(final StringBuilder text, final List<Tag> tags) {
+        for (final Tag tag : tags) {
+            text.append(tag.getName()).append(' ');
+        }
+        text.append('\n');
+    }
+
+    private static void appendSteps(final StringBuilder text, final List<Step> steps) {
+        for (final Step step : steps) {
+            text.append(step.getKeyword()).append(step.getName()).append('\n');
+            if (step.getRows() != null) {
+                for (final DataTableRow row : step.getRows()) {
+                    text.append(row.getCells()).append('\n');
+                }
+            }
+            if (step.getDocString() != null) {
+                text.append(step.getDocString().getValue()).append('\n');
+            }
+        }
+    }
+
+    // hooks of any glue apply to all scenarios so the whole glue (with parents) is part of the fingerprint
+    private static String glueFingerprint(final Collection<Class<?>> glues, final ClassLoader loader) {
+        final MessageDigest digest = newDigest();
+        final Set<Class<?>> done = new HashSet<Class<?>>();
+        for (final Class<?> glue : glues) {
+            Class<?> current = glue;
+            while (current != null && !Object.class.equals(current) && done.add(current)) {
+                final InputStream bytecode = loader.getResourceAsStream(current.getName().replace('.', '/') + ".class");
+                if (bytecode != null) {
+                    digest.update(IOs.slurp(bytecode));
+                }
+                current = current.getSuperclass();
+            }
+        }
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    private static String digest(final String value) {
+        final MessageDigest digest = newDigest();
+        try {
+            digest.update(value.getBytes("UTF-8"));
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void close(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (final IOException e) {
+                // no-op
+            }
+        }
+    }
+
+    private class Recorder implements Formatter, Reporter {
+        private String uri;
+        private String current;
+
+        @Override
+        public void uri(final String uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public void startOfScenarioLifeCycle(final Scenario scenario) {
+            current = scenarioByLine.get(uri + ':' + scenario.getLine());
+            if (current != null) {
+                run.add(current);
+            }
+        }
+
+        @Override
+        public void endOfScenarioLifeCycle(final Scenario scenario) {
+            current = null;
+        }
+
+        @Override
+        public void before(final Match match, final Result result) {
+            record(result);
+        }
+
+        @Override
+        public void result(final Result result) {
+            record(result);
+        }
+
+        @Override
+        public void after(final Match match, final Result result) {
+            record(result);
+        }
+
+        private void record(final Result result) {
+            if (current != null && !Result.PASSED.equals(result.getStatus())) {
+                failed.add(current);
+            }
+        }
+
+        @Override
+        public void syntaxError(final String state, final String event, final List<String> legalEvents, final String uri, final Integer line) {
+            // no-op
+        }
+
+        @Override
+        public void feature(final Feature feature) {
+            // no-op
+        }
+
+        @Override
+        public void scenarioOutline(final ScenarioOutline scenarioOutline) {
+            // no-op
+        }
+
+        @Override
+        public void examples(final Examples examples) {
+            // no-op
+        }
+
+        @Override
+        public void background(final Background background) {
+            // no-op
+        }
+
+        @Override
+        public void scenario(final Scenario scenario) {
+            // no-op
+        }
+
+        @Override
+        public void step(final Step step) {
+            // no-op
+        }
+
+        @Override
+        public void done() {
+            // no-op
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+
+        @Override
+        public void eof() {
+            // no-op
+        }
+
+        @Override
+        public void match(final Match match) {
+            // no-op
+        }
+
+        @Override
+        public void embedding(final String mimeType, final byte[] data) {
+            // no-op
+        }
+
+        @Override
+        public void write(final String text) {
+            // no-op
+        }
+    }
+}
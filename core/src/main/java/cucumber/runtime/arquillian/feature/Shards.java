@@ -0,0 +1,78 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.FeatureBuilder;
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.model.ExamplesTableRow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// deterministic partitioning of scenarios (and example rows) across JVMs: shard i of n
+public final class Shards {
+    private Shards() {
+        // no-op
+    }
+
+    public static boolean isActive(final int shardCount) {
+        return shardCount > 1;
+    }
+
+    // String#hashCode() is specified so it is stable across JVMs
+    public static boolean accept(final String path, final long line, final int shardIndex, final int shardCount) {
+        return ((path + ':' + line).hashCode() & Integer.MAX_VALUE) % shardCount == shardIndex;
+    }
+
+    /**
+     * @param path the feature path used as shard key.
+     * @param content the feature content.
+     * @param filters the tag/name/line filters of the test, they are applied before sharding.
+     * @return the scenario/example row lines of the feature belonging to this shard.
+     */
+    public static List<Long> select(final String path, final byte[] content, final List<Object> filters,
+                                    final int shardIndex, final int shardCount) {
+        return select(path, GherkinAst.parse(path, content), filters, shardIndex, shardCount);
+    }
+
+    public static List<Long> select(final String path, final GherkinAst ast, final List<Object> filters,
+                                    final int shardIndex, final int shardCount) {
+        final List<CucumberFeature> parsed = new ArrayList<CucumberFeature>();
+        final FeatureBuilder builder = new FeatureBuilder(parsed);
+        ast.replay(builder, parsed, path, filters);
+        builder.close();
+
+        final List<Long> lines = new ArrayList<Long>();
+        for (final CucumberFeature feature : parsed) {
+            for (final CucumberTagStatement element : feature.getFeatureElements()) {
+                if (CucumberScenarioOutline.class.isInstance(element)) {
+                    for (final CucumberExamples examples : CucumberScenarioOutline.class.cast(element).getCucumberExamplesList()) {
+                        final List<ExamplesTableRow> rows = examples.getExamples().getRows();
+                        for (final ExamplesTableRow row : rows.subList(Math.min(1, rows.size()), rows.size())) { // skip header
+                            addIfAccepted(path, row.getLine(), shardIndex, shardCount, lines);
+                        }
+                    }
+                } else {
+                    addIfAccepted(path, element.getGherkinModel().getLine(), shardIndex, shardCount, lines);
+                }
+            }
+        }
+        return lines;
+    }
+
+    public static String withLines(final String path, final List<Long> lines) {
+        final StringBuilder builder = new StringBuilder(path);
+        for (final Long line : lines) {
+            builder.append(':').append(line);
+        }
+        return builder.toString();
+    }
+
+    private static void addIfAccepted(final String path, final long line, final int shardIndex, final int shardCount,
+                                      final List<Long> lines) {
+        if (accept(path, line, shardIndex, shardCount)) {
+            lines.add(line);
+        }
+    }
+}
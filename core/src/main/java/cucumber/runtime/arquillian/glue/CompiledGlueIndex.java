@@ -0,0 +1,239 @@
+package cucumber.runtime.arquillian.glue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Logger;
+
+// META-INF/cukespace/glue-index files written at compile time by cukespace-glue-index-processor: glue classes and
+// compiled types per package and the cucumber annotations the glues use. An index only describes the jar/folder
+// containing it and only when it knows all the classes of this jar/folder (a partial/incremental compilation rewrites
+// it with the compiled sources only).
+public final class CompiledGlueIndex {
+    public static final String RESOURCE = "META-INF/cukespace/glue-index";
+
+    private static final Logger LOGGER = Logger.getLogger(CompiledGlueIndex.class.getName());
+    private static final String VERSION = "2";
+    private static final String GLUES_PREFIX = "glues.";
+    private static final String TYPES_PREFIX = "types.";
+    private static final CompiledGlueIndex NONE = new CompiledGlueIndex(null);
+    private static final Map<ClassLoader, CompiledGlueIndex> CACHE = new WeakHashMap<ClassLoader, CompiledGlueIndex>();
+
+    private final ClassLoader loader;
+    private final Map<String, Root> roots = new HashMap<String, Root>(); // by jar/folder url
+    private final Collection<String> annotations = new LinkedHashSet<String>();
+    private final Map<String, Collection<String>> resolved = new HashMap<String, Collection<String>>();
+
+    private CompiledGlueIndex(final ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    // null when the loader has no index
+    public static CompiledGlueIndex of(final ClassLoader loader) {
+        if (loader == null) {
+            return null;
+        }
+
+        CompiledGlueIndex index;
+        synchronized (CACHE) {
+            index = CACHE.get(loader);
+        }
+        if (index == null) {
+            index = read(loader);
+            synchronized (CACHE) {
+                CACHE.put(loader, index);
+            }
+        }
+        return index == NONE ? null : index;
+    }
+
+    // glue classes of this package and its subpackages, as cucumber scans a glue path, or null if a jar/folder
+    // providing this package has no index or an index missing some of its classes: the package must be scanned
+    public synchronized Collection<String> glues(final String packageName) {
+        if (resolved.containsKey(packageName)) {
+            return resolved.get(packageName);
+        }
+        final Collection<String> glues = resolve(packageName);
+        resolved.put(packageName, glues);
+        return glues;
+    }
+
+    // annotations used by the indexed glues, cucumber annotations used by other glues are not listed
+    public Collection<String> annotations() {
+        return Collections.unmodifiableCollection(annotations);
+    }
+
+    private Collection<String> resolve(final String packageName) {
+        if (packageName.isEmpty()) { // can't list the roots providing the default package
+            return null;
+        }
+
+        final String path = packageName.replace('.', '/') + '/';
+        final Enumeration<URL> urls;
+        try {
+            urls = loader.getResources(path);
+        } catch (final IOException e) {
+            return null;
+        }
+
+        final Collection<String> glues = new ArrayList<String>();
+        while (urls.hasMoreElements()) {
+            final URL url = urls.nextElement();
+            final String external = url.toExternalForm();
+            final String rootUrl = external.substring(0, external.length() - (external.endsWith("/") ? path.length() : path.length() - 1));
+            final Root root = roots.get(rootUrl);
+            if (root == null) {
+                LOGGER.fine(rootUrl + " has no glue index, scanning " + packageName);
+                return null;
+            }
+
+            final Collection<String> classes = listClasses(url, path);
+            if (classes == null || !root.types.containsAll(classes)) {
+                LOGGER.info("Glue index of " + rootUrl + " doesn't know all its classes, scanning " + packageName);
+                return null;
+            }
+            for (final Map.Entry<String, Collection<String>> entry : root.gluesByPackage.entrySet()) {
+                final String name = entry.getKey();
+                if (name.equals(packageName) || name.startsWith(packageName + '.')) {
+                    glues.addAll(entry.getValue());
+                }
+            }
+        }
+        return glues;
+    }
+
+    // binary names of the classes under path (subpackages included), anonymous/local classes are ignored since they
+    // can't be glues, null if the url can't be listed
+    private static Collection<String> listClasses(final URL url, final String path) {
+        final Collection<String> classes = new ArrayList<String>();
+        try {
+            if ("file".equals(url.getProtocol())) {
+                listClasses(new File(URLDecoder.decode(url.getFile(), "UTF-8")), path, classes);
+                return classes;
+            }
+            if ("jar".equals(url.getProtocol())) {
+                final JarURLConnection connection = JarURLConnection.class.cast(url.openConnection());
+                connection.setUseCaches(false);
+                final JarFile jar = connection.getJarFile();
+                try {
+                    final Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        final String name = entries.nextElement().getName();
+                        if (name.startsWith(path)) {
+                            addClass(name, classes);
+                        }
+                    }
+                } finally {
+                    jar.close();
+                }
+                return classes;
+            }
+        } catch (final IOException e) {
+            LOGGER.fine("Can't list " + url + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void listClasses(final File folder, final String path, final Collection<String> classes) {
+        final File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                listClasses(file, path + file.getName() + '/', classes);
+            } else {
+                addClass(path + file.getName(), classes);
+            }
+        }
+    }
+
+    private static void addClass(final String entry, final Collection<String> classes) {
+        if (!entry.endsWith(".class") || entry.endsWith("package-info.class")) {
+            return;
+        }
+        final String name = entry.substring(0, entry.length() - ".class".length()).replace('/', '.');
+        final int dollar = name.lastIndexOf('$');
+        if (dollar > 0 && dollar + 1 < name.length() && Character.isDigit(name.charAt(dollar + 1))) { // anonymous/local
+            return;
+        }
+        classes.add(name);
+    }
+
+    private static CompiledGlueIndex read(final ClassLoader loader) {
+        final Enumeration<URL> urls;
+        try {
+            urls = loader.getResources(RESOURCE);
+        } catch (final IOException e) {
+            return NONE;
+        }
+
+        final CompiledGlueIndex index = new CompiledGlueIndex(loader);
+        while (urls.hasMoreElements()) {
+            final URL url = urls.nextElement();
+            final Properties properties = new Properties();
+            try {
+                final InputStream stream = url.openStream();
+                try {
+                    properties.load(stream);
+                } finally {
+                    stream.close();
+                }
+            } catch (final IOException e) {
+                LOGGER.warning("Can't read " + url + ", ignoring it: " + e.getMessage());
+                continue;
+            }
+            if (!VERSION.equals(properties.getProperty("version"))) {
+                LOGGER.warning("Unsupported glue index " + url + ", ignoring it");
+                continue;
+            }
+
+            final Root root = new Root();
+            for (final String key : properties.stringPropertyNames()) {
+                if (key.startsWith(GLUES_PREFIX)) {
+                    root.gluesByPackage.put(key.substring(GLUES_PREFIX.length()), split(properties.getProperty(key)));
+                } else if (key.startsWith(TYPES_PREFIX)) {
+                    root.types.addAll(split(properties.getProperty(key)));
+                }
+            }
+            final String external = url.toExternalForm();
+            index.roots.put(external.substring(0, external.length() - RESOURCE.length()), root);
+            index.annotations.addAll(split(properties.getProperty("annotations")));
+        }
+        return index.roots.isEmpty() ? NONE : index;
+    }
+
+    private static Collection<String> split(final String value) {
+        final Collection<String> values = new ArrayList<String>();
+        if (value == null) {
+            return values;
+        }
+        for (final String v : value.split(",")) {
+            final String trimmed = v.trim();
+            if (!trimmed.isEmpty()) {
+                values.add(trimmed);
+            }
+        }
+        return values;
+    }
+
+    private static class Root {
+        private final Map<String, Collection<String>> gluesByPackage = new HashMap<String, Collection<String>>();
+        private final Collection<String> types = new HashSet<String>();
+    }
+}
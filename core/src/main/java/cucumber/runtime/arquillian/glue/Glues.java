@@ -23,8 +23,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import static java.util.Arrays.asList;
-
 public final class Glues {
     private Glues() {
         // no-op
@@ -43,17 +41,49 @@ public final class Glues {
             final String[] cucumberGlues = cucumberOptions.glue();
             if (cucumberGlues.length > 0) {
                 final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-                final JavaBackend javaBackend = new JavaBackend(new MultiLoader(classLoader));
-                final ScanGlue glue = new ScanGlue();
-                javaBackend.loadGlue(glue, asList(cucumberGlues));
 
-                glues.addAll(glue.classes);
+                // packages fully described by compile time indexes are not scanned
+                final List<String> toScan = new ArrayList<String>();
+                final CompiledGlueIndex index = CompiledGlueIndex.of(classLoader);
+                for (final String gluePath : cucumberGlues) {
+                    final Collection<String> indexed = index == null ? null : index.glues(MultiLoader.packageName(gluePath));
+                    if (indexed == null || !addIndexedGlues(indexed, classLoader, glues)) {
+                        toScan.add(gluePath);
+                    }
+                }
+
+                if (!toScan.isEmpty()) {
+                    final JavaBackend javaBackend = new JavaBackend(new MultiLoader(classLoader));
+                    final ScanGlue glue = new ScanGlue();
+                    javaBackend.loadGlue(glue, toScan);
+
+                    glues.addAll(glue.classes);
+                }
             }
         }
 
         return glues;
     }
 
+    private static boolean addIndexedGlues(final Collection<String> names, final ClassLoader classLoader, final Collection<Class<?>> glues) {
+        final Collection<Class<?>> classes = new ArrayList<Class<?>>(names.size());
+        for (final String name : names) {
+            try {
+                classes.add(classLoader.loadClass(name));
+            } catch (final ClassNotFoundException e) { // stale index
+                return false;
+            } catch (final NoClassDefFoundError e) {
+                return false;
+            }
+        }
+        for (final Class<?> clazz : classes) {
+            if (!glues.contains(clazz)) {
+                glues.add(clazz);
+            }
+        }
+        return true;
+    }
+
     private static class ScanGlue implements Glue {
         private final Set<Class<?>> classes = new HashSet<Class<?>>(); // make classes unique
 
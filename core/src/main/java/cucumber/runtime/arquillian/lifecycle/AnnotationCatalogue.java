@@ -0,0 +1,67 @@
+package cucumber.runtime.arquillian.lifecycle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Properties;
+
+// cucumber-java annotations listed when cukespace-core was built (see AnnotationCatalogueProcessor), only used if the
+// cucumber-java of the classpath is the one of the build
+public final class AnnotationCatalogue {
+    private static final String RESOURCE = "META-INF/cukespace/annotation-catalogue.properties";
+    private static final String CUCUMBER_JAVA_POM = "META-INF/maven/info.cukes/cucumber-java/pom.properties";
+
+    private AnnotationCatalogue() {
+        // no-op
+    }
+
+    // null when there is no usable catalogue
+    static Collection<String> read(final ClassLoader loader) {
+        final Properties catalogue = load(AnnotationCatalogue.class.getClassLoader(), RESOURCE);
+        final Properties cucumberJava = load(loader, CUCUMBER_JAVA_POM);
+        if (catalogue == null || cucumberJava == null || !catalogue.getProperty("version", "").equals(cucumberJava.getProperty("version"))) {
+            return null;
+        }
+
+        final Collection<String> names = new ArrayList<String>();
+        split(catalogue.getProperty("hooks"), names);
+        final Collection<String> languages = new ArrayList<String>();
+        split(catalogue.getProperty("languages"), languages);
+        for (final String language : languages) {
+            split(catalogue.getProperty("language." + language), names);
+        }
+        return names.isEmpty() ? null : Collections.unmodifiableCollection(names);
+    }
+
+    private static Properties load(final ClassLoader loader, final String resource) {
+        final InputStream stream = loader == null ? null : loader.getResourceAsStream(resource);
+        if (stream == null) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try {
+            try {
+                properties.load(stream);
+            } finally {
+                stream.close();
+            }
+        } catch (final IOException e) {
+            return null;
+        }
+        return properties;
+    }
+
+    private static void split(final String value, final Collection<String> values) {
+        if (value == null) {
+            return;
+        }
+        for (final String v : value.split(",")) {
+            if (!v.isEmpty()) {
+                values.add(v);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import cucumber.api.java.en.But;
 import cucumber.api.java.en.Given;
 import cucumber.api.java.en.Then;
 import cucumber.api.java.en.When;
+import cucumber.runtime.arquillian.glue.CompiledGlueIndex;
 import cucumber.runtime.arquillian.shared.ClientServerFiles;
 import cucumber.runtime.arquillian.stream.NotCloseablePrintStream;
 import cucumber.runtime.io.MultiLoader;
@@ -29,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 
 /**
  * These observers are for:
@@ -40,7 +42,7 @@ import java.util.Collections;
 public class CucumberLifecycle {
     private static final PrintStream ORIGINAL_OUT = System.out;
     private static final PrintStream NOT_CLOSEABLE_OUT = new NotCloseablePrintStream(ORIGINAL_OUT);
-    private static final Collection<Class<? extends Annotation>> CUCUMBER_ANNOTATIONS = new ArrayList<Class<? extends Annotation>>();
+    private static final Collection<String> CUCUMBER_ANNOTATIONS = new LinkedHashSet<String>();
     private static final Collection<TestEnricher> TEST_ENRICHERS = new ArrayList<TestEnricher>();
     private static volatile Collection<ResourceLoader> RESOURCES_LOADERS = null;
 
@@ -73,17 +75,15 @@ public class CucumberLifecycle {
         if (CUCUMBER_ANNOTATIONS.isEmpty()) { // don't do it N times
             synchronized (CUCUMBER_ANNOTATIONS) {
                 if (CUCUMBER_ANNOTATIONS.isEmpty()) { // don't do it N times
-                    final ClassLoader tccl = Thread.currentThread().getContextClassLoader();
-                    final InputStream is = tccl.getResourceAsStream(ClientServerFiles.ANNOTATION_LIST);
+                    final InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(ClientServerFiles.ANNOTATION_LIST);
                     if (is != null) {
                         String line;
                         try {
                             final BufferedReader reader = new BufferedReader(new InputStreamReader(is));
                             while ((line = reader.readLine()) != null) {
-                                try {
-                                    CUCUMBER_ANNOTATIONS.add((Class<? extends Annotation>) tccl.loadClass(line));
-                                } catch (ClassNotFoundException e) {
-                                    // no-op
+                                line = line.trim();
+                                if (!line.isEmpty()) {
+                                    CUCUMBER_ANNOTATIONS.add(line);
                                 }
                             }
                         } catch (final IOException e) {
@@ -114,7 +114,8 @@ public class CucumberLifecycle {
         }
     }
 
-    public static Collection<Class<? extends Annotation>> cucumberAnnotations() {
+    // names: glue methods are matched on the annotation name so the server doesn't load the annotations of all languages
+    public static Collection<String> cucumberAnnotationNames() {
         if (!CUCUMBER_ANNOTATIONS.isEmpty()) {
             return CUCUMBER_ANNOTATIONS;
         }
@@ -125,16 +126,42 @@ public class CucumberLifecycle {
             }
 
             final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-            final ResourceLoaderClassFinder finder = new ResourceLoaderClassFinder(new MultiLoader(loader), loader);
-            CUCUMBER_ANNOTATIONS.addAll(finder.getDescendants(Annotation.class, "cucumber.api"));
+            // cucumber-java annotations listed when building cukespace
+            final Collection<String> catalogue = AnnotationCatalogue.read(loader);
+            if (catalogue != null) {
+                CUCUMBER_ANNOTATIONS.addAll(catalogue);
+            } else {
+                final ResourceLoaderClassFinder finder = new ResourceLoaderClassFinder(new MultiLoader(loader), loader);
+                for (final Class<? extends Annotation> annotation : finder.getDescendants(Annotation.class, "cucumber.api")) {
+                    CUCUMBER_ANNOTATIONS.add(annotation.getName());
+                }
+            }
+            // an addition, not a replacement: glues outside of the indexes can use any other annotation
+            final CompiledGlueIndex index = CompiledGlueIndex.of(loader);
+            if (index != null) {
+                CUCUMBER_ANNOTATIONS.addAll(index.annotations());
+            }
 
             if (CUCUMBER_ANNOTATIONS.isEmpty()) {
-                return Arrays.asList(Given.class, When.class, Then.class, And.class, But.class);
+                return Arrays.asList(Given.class.getName(), When.class.getName(), Then.class.getName(), And.class.getName(), But.class.getName());
             }
             return CUCUMBER_ANNOTATIONS;
         }
     }
 
+    public static Collection<Class<? extends Annotation>> cucumberAnnotations() {
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final Collection<Class<? extends Annotation>> annotations = new ArrayList<Class<? extends Annotation>>();
+        for (final String name : cucumberAnnotationNames()) {
+            try {
+                annotations.add((Class<? extends Annotation>) loader.loadClass(name));
+            } catch (final ClassNotFoundException e) {
+                // no-op
+            }
+        }
+        return annotations;
+    }
+
     public static Object enrich(final Object instance) {
         for (final TestEnricher enricher : TEST_ENRICHERS) {
             try {
@@ -0,0 +1,52 @@
+package cucumber.runtime.arquillian.reporter;
+
+import org.asciidoctor.Asciidoctor;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// a single asciidoctor for the JVM: booting JRuby takes seconds so it is started once, in background as soon as
+// documentation is expected, and reused by all the renderings of the build. It is never shut down, it dies with the JVM.
+final class AsciidoctorEngine {
+    private static FutureTask<Asciidoctor> engine;
+
+    private AsciidoctorEngine() {
+        // no-op
+    }
+
+    static synchronized Future<Asciidoctor> warmUp() {
+        if (engine == null) {
+            engine = new FutureTask<Asciidoctor>(new Callable<Asciidoctor>() {
+                @Override
+                public Asciidoctor call() throws Exception {
+                    return Asciidoctor.Factory.create();
+                }
+            });
+
+            final Thread thread = new Thread(engine, "cukespace-asciidoctor-boot");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return engine;
+    }
+
+    static void convertFile(final File file, final Map<String, Object> options) throws InterruptedException {
+        final Asciidoctor asciidoctor;
+        try {
+            asciidoctor = warmUp().get();
+        } catch (final ExecutionException e) {
+            synchronized (AsciidoctorEngine.class) { // let next rendering retry
+                engine = null;
+            }
+            throw new IllegalStateException("Can't start asciidoctor", e.getCause());
+        }
+
+        synchronized (asciidoctor) { // a single JRuby runtime, don't rely on its thread safety
+            asciidoctor.convertFile(file, options);
+        }
+    }
+}
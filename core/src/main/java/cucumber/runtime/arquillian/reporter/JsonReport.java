@@ -0,0 +1,279 @@
+package cucumber.runtime.arquillian.reporter;
+
+import gherkin.deps.com.google.gson.GsonBuilder;
+import gherkin.deps.com.google.gson.JsonArray;
+import gherkin.deps.com.google.gson.JsonElement;
+import gherkin.deps.com.google.gson.JsonObject;
+import gherkin.deps.com.google.gson.JsonParser;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.JSONFormatter;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Background;
+import gherkin.formatter.model.Examples;
+import gherkin.formatter.model.Feature;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.ScenarioOutline;
+import gherkin.formatter.model.Step;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// json report of a test class written to its file while features run: only the running features are kept in memory
+// (JSONFormatter keeps the whole run). When features are split in scenarios (unitsByUri) a feature is written once
+// all its scenarios ran to keep one entry per feature.
+public class JsonReport {
+    private static final Logger LOGGER = Logger.getLogger(JsonReport.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File destination;
+    private final Map<String, Integer> remainingUnits;
+    private final Map<String, JsonObject> pendingFeatures = new HashMap<String, JsonObject>();
+    private final Collection<FeatureFormatter> formatters = new ArrayList<FeatureFormatter>();
+    private Writer writer;
+    private boolean first = true;
+
+    public JsonReport(final File destination, final Map<String, Integer> unitsByUri) {
+        this.destination = destination;
+        this.remainingUnits = unitsByUri == null ? null : new HashMap<String, Integer>(unitsByUri);
+
+        final File parentFile = destination.getParentFile();
+        if (!parentFile.exists() && !parentFile.mkdirs()) {
+            throw new IllegalArgumentException("Can't create " + parentFile.getAbsolutePath());
+        }
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destination), "UTF-8"), BUFFER_SIZE);
+            writer.write('[');
+        } catch (final IOException e) {
+            failed(e);
+        }
+    }
+
+    public File getDestination() {
+        return destination;
+    }
+
+    // one per runtime, formatters are stateful
+    public synchronized Object newFormatter() {
+        final FeatureFormatter formatter = new FeatureFormatter();
+        formatters.add(formatter);
+        return formatter;
+    }
+
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        for (final FeatureFormatter formatter : formatters) { // a feature which didn't reach its eof (error)
+            formatter.flush();
+        }
+        formatters.clear();
+        for (final JsonObject feature : pendingFeatures.values()) { // some scenarios didn't run (error)
+            write(feature);
+        }
+        pendingFeatures.clear();
+        try {
+            writer.write(']');
+            writer.close();
+        } catch (final IOException e) {
+            failed(e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private synchronized void onFeature(final String report) {
+        if (writer == null) {
+            return;
+        }
+
+        if (remainingUnits == null) { // already a whole feature, no need to parse it
+            final String features = report.trim();
+            if (features.length() > 2) {
+                append(features.substring(1, features.length() - 1));
+            }
+            return;
+        }
+
+        for (final JsonElement element : new JsonParser().parse(report).getAsJsonArray()) {
+            final JsonObject feature = element.getAsJsonObject();
+            final String uri = feature.get("uri").getAsString();
+            final JsonObject existing = pendingFeatures.get(uri);
+            final JsonObject merged;
+            if (existing == null) {
+                merged = feature;
+            } else {
+                merged = existing;
+                if (feature.has("elements")) {
+                    if (!existing.has("elements")) {
+                        existing.add("elements", new JsonArray());
+                    }
+                    existing.getAsJsonArray("elements").addAll(feature.getAsJsonArray("elements"));
+                }
+            }
+
+            final Integer remaining = remainingUnits.get(uri);
+            if (remaining == null || remaining <= 1) {
+                remainingUnits.remove(uri);
+                pendingFeatures.remove(uri);
+                write(merged);
+            } else {
+                remainingUnits.put(uri, remaining - 1);
+                pendingFeatures.put(uri, merged);
+            }
+        }
+    }
+
+    private void write(final JsonObject feature) {
+        append(new GsonBuilder().setPrettyPrinting().create().toJson(feature));
+    }
+
+    private void append(final String feature) {
+        try {
+            if (!first) {
+                writer.write(',');
+            }
+            writer.write(feature);
+            first = false;
+        } catch (final IOException e) {
+            failed(e);
+        }
+    }
+
+    private void failed(final IOException e) {
+        LOGGER.warning("Can't write " + destination.getAbsolutePath() + ": " + e.getMessage());
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (final IOException ignored) {
+                // no-op
+            }
+        }
+        writer = null;
+    }
+
+    // a JSONFormatter per feature, its output is handed to the report when the feature ends
+    private class FeatureFormatter implements Formatter, Reporter {
+        private StringBuilder output;
+        private JSONFormatter delegate;
+
+        @Override
+        public void uri(final String uri) {
+            output = new StringBuilder();
+            delegate = new JSONFormatter(output);
+            delegate.uri(uri);
+        }
+
+        @Override
+        public void eof() {
+            flush();
+        }
+
+        private void flush() {
+            if (delegate == null) {
+                return;
+            }
+            delegate.eof();
+            delegate.done();
+            delegate = null;
+            onFeature(output.toString());
+            output = null;
+        }
+
+        @Override
+        public void feature(final Feature feature) {
+            delegate.feature(feature);
+        }
+
+        @Override
+        public void background(final Background background) {
+            delegate.background(background);
+        }
+
+        @Override
+        public void scenario(final Scenario scenario) {
+            delegate.scenario(scenario);
+        }
+
+        @Override
+        public void scenarioOutline(final ScenarioOutline scenarioOutline) {
+            delegate.scenarioOutline(scenarioOutline);
+        }
+
+        @Override
+        public void examples(final Examples examples) {
+            delegate.examples(examples);
+        }
+
+        @Override
+        public void step(final Step step) {
+            delegate.step(step);
+        }
+
+        @Override
+        public void startOfScenarioLifeCycle(final Scenario scenario) {
+            delegate.startOfScenarioLifeCycle(scenario);
+        }
+
+        @Override
+        public void endOfScenarioLifeCycle(final Scenario scenario) {
+            delegate.endOfScenarioLifeCycle(scenario);
+        }
+
+        @Override
+        public void before(final Match match, final Result result) {
+            delegate.before(match, result);
+        }
+
+        @Override
+        public void result(final Result result) {
+            delegate.result(result);
+        }
+
+        @Override
+        public void after(final Match match, final Result result) {
+            delegate.after(match, result);
+        }
+
+        @Override
+        public void match(final Match match) {
+            delegate.match(match);
+        }
+
+        @Override
+        public void embedding(final String mimeType, final byte[] data) {
+            delegate.embedding(mimeType, data);
+        }
+
+        @Override
+        public void write(final String text) {
+            delegate.write(text);
+        }
+
+        @Override
+        public void syntaxError(final String state, final String event, final List<String> legalEvents, final String uri, final Integer line) {
+            // no-op
+        }
+
+        @Override
+        public void done() {
+            // no-op: features are handed to the report on eof
+        }
+
+        @Override
+        public void close() {
+            // no-op: the report is closed once all runtimes ended
+        }
+    }
+}
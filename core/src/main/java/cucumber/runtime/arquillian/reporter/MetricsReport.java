@@ -0,0 +1,197 @@
+package cucumber.runtime.arquillian.reporter;
+
+import gherkin.deps.com.google.gson.GsonBuilder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+// latency histograms of a test class run (glue loading, step matching and execution, hooks) written next to its
+// json report when the run ends and optionally exposed as a JMX MBean while and after it runs
+public class MetricsReport {
+    public static final String GLUE = "glue";
+    public static final String MATCH = "match";
+    public static final String STEP = "step";
+    public static final String HOOK = "hook";
+    public static final String SCENARIO = "scenario";
+
+    private static final Logger LOGGER = Logger.getLogger(MetricsReport.class.getName());
+
+    private final File destination;
+    private ObjectName mbean; // null when not registered
+    private final Map<String, Map<String, Histogram>> histograms = new TreeMap<String, Map<String, Histogram>>();
+
+    public MetricsReport(final File destination, final Class<?> testClass, final boolean jmx) {
+        this.destination = destination;
+        if (jmx) {
+            register(testClass);
+        }
+    }
+
+    public static File reportFile(final File jsonReport) {
+        final String name = jsonReport.getName();
+        return new File(jsonReport.getParentFile(), name.substring(0, name.length() - ".json".length()) + ".metrics.json");
+    }
+
+    public void record(final String category, final String name, final long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        synchronized (histograms) {
+            Map<String, Histogram> byName = histograms.get(category);
+            if (byName == null) {
+                byName = new TreeMap<String, Histogram>();
+                histograms.put(category, byName);
+            }
+            Histogram histogram = byName.get(name);
+            if (histogram == null) {
+                histogram = new Histogram();
+                byName.put(name, histogram);
+            }
+            histogram.record(nanos);
+        }
+    }
+
+    public String toJson() {
+        final Map<String, Object> json = new LinkedHashMap<String, Object>();
+        synchronized (histograms) {
+            for (final Map.Entry<String, Map<String, Histogram>> category : histograms.entrySet()) {
+                final Map<String, Object> byName = new LinkedHashMap<String, Object>();
+                for (final Map.Entry<String, Histogram> histogram : category.getValue().entrySet()) {
+                    byName.put(histogram.getKey(), histogram.getValue().toMap());
+                }
+                json.put(category.getKey(), byName);
+            }
+        }
+        return new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(json);
+    }
+
+    // writes the file and unregisters the MBean
+    public void close() {
+        unregister();
+
+        final File parentFile = destination.getParentFile();
+        if (!parentFile.exists() && !parentFile.mkdirs()) {
+            LOGGER.warning("Can't create " + parentFile.getAbsolutePath());
+            return;
+        }
+        try {
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(destination), "UTF-8");
+            try {
+                writer.write(toJson());
+            } finally {
+                writer.close();
+            }
+        } catch (final IOException e) {
+            LOGGER.warning("Can't write " + destination.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+
+    private void register(final Class<?> testClass) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName("cukespace:type=Metrics,name=" + ObjectName.quote(testClass.getName()));
+            if (server.isRegistered(name)) { // run concurrently or not closed
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new StandardMBean(new MetricsMBean() {
+                @Override
+                public String getDestination() {
+                    return destination.getAbsolutePath();
+                }
+
+                @Override
+                public String getMetrics() {
+                    return toJson();
+                }
+            }, MetricsMBean.class), name);
+            mbean = name;
+        } catch (final Exception e) {
+            LOGGER.warning("Can't register metrics MBean of " + testClass.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void unregister() {
+        if (mbean == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbean);
+        } catch (final Exception e) {
+            LOGGER.warning("Can't unregister " + mbean + ": " + e.getMessage());
+        } finally {
+            mbean = null;
+        }
+    }
+
+    public interface MetricsMBean {
+        String getDestination();
+
+        String getMetrics();
+    }
+
+    // power of 2 microsecond buckets, percentiles are the upper bound of the bucket they fall in
+    private static class Histogram {
+        private final long[] buckets = new long[40];
+        private long count;
+        private long total;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        private void record(final long nanos) {
+            final long micros = nanos / 1000;
+            buckets[Math.min(buckets.length - 1, 64 - Long.numberOfLeadingZeros(micros))]++;
+            count++;
+            total += micros;
+            min = Math.min(min, micros);
+            max = Math.max(max, micros);
+        }
+
+        private Map<String, Object> toMap() {
+            final Map<String, Object> map = new LinkedHashMap<String, Object>();
+            map.put("count", count);
+            map.put("totalMicros", total);
+            map.put("minMicros", min);
+            map.put("meanMicros", total / count);
+            map.put("p50Micros", percentile(0.5));
+            map.put("p90Micros", percentile(0.9));
+            map.put("p99Micros", percentile(0.99));
+            map.put("maxMicros", max);
+
+            final Map<String, Long> distribution = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] > 0) {
+                    distribution.put("<=" + upperBound(i), buckets[i]);
+                }
+            }
+            map.put("buckets", distribution);
+            return map;
+        }
+
+        private long percentile(final double percentile) {
+            final long rank = (long) Math.ceil(percentile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+
+        private static long upperBound(final int bucket) {
+            return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+    }
+}
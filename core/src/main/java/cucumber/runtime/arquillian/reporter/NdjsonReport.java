@@ -0,0 +1,218 @@
+package cucumber.runtime.arquillian.reporter;
+
+import gherkin.deps.com.google.gson.Gson;
+import gherkin.deps.net.iharder.Base64;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Background;
+import gherkin.formatter.model.Examples;
+import gherkin.formatter.model.Feature;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.ScenarioOutline;
+import gherkin.formatter.model.Step;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// event stream of a test class, one json object per line flushed as soon as the event happens so it can be tailed
+public class NdjsonReport {
+    private static final Logger LOGGER = Logger.getLogger(NdjsonReport.class.getName());
+
+    private final File destination;
+    private final Gson gson = new Gson();
+    private Writer writer;
+
+    public NdjsonReport(final File destination) {
+        this.destination = destination;
+
+        final File parentFile = destination.getParentFile();
+        if (!parentFile.exists() && !parentFile.mkdirs()) {
+            throw new IllegalArgumentException("Can't create " + parentFile.getAbsolutePath());
+        }
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destination), "UTF-8"));
+        } catch (final IOException e) {
+            failed(e);
+        }
+    }
+
+    public static File reportFile(final File jsonReport) {
+        final String name = jsonReport.getName();
+        return new File(jsonReport.getParentFile(), name.substring(0, name.length() - ".json".length()) + ".ndjson");
+    }
+
+    // one per runtime, formatters are stateful
+    public Object newFormatter() {
+        return new EventFormatter();
+    }
+
+    public synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (final IOException e) {
+            failed(e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private synchronized void event(final Map<String, Object> event) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(gson.toJson(event));
+            writer.write('\n');
+            writer.flush();
+        } catch (final IOException e) {
+            failed(e);
+        }
+    }
+
+    private void failed(final IOException e) {
+        LOGGER.warning("Can't write " + destination.getAbsolutePath() + ": " + e.getMessage());
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (final IOException ignored) {
+                // no-op
+            }
+        }
+        writer = null;
+    }
+
+    private class EventFormatter implements Formatter, Reporter {
+        private String uri;
+
+        private void event(final String type, final String key, final Object value) {
+            final Map<String, Object> event = new LinkedHashMap<String, Object>();
+            event.put("event", type);
+            event.put("uri", uri);
+            event.put("timestamp", System.currentTimeMillis());
+            if (key != null) {
+                event.put(key, value);
+            }
+            NdjsonReport.this.event(event);
+        }
+
+        @Override
+        public void uri(final String uri) {
+            this.uri = uri;
+            event("uri", null, null);
+        }
+
+        @Override
+        public void feature(final Feature feature) {
+            event("feature", "feature", feature.toMap());
+        }
+
+        @Override
+        public void background(final Background background) {
+            event("background", "background", background.toMap());
+        }
+
+        @Override
+        public void scenario(final Scenario scenario) {
+            event("scenario", "scenario", scenario.toMap());
+        }
+
+        @Override
+        public void scenarioOutline(final ScenarioOutline scenarioOutline) {
+            event("scenarioOutline", "scenarioOutline", scenarioOutline.toMap());
+        }
+
+        @Override
+        public void examples(final Examples examples) {
+            event("examples", "examples", examples.toMap());
+        }
+
+        @Override
+        public void step(final Step step) {
+            event("step", "step", step.toMap());
+        }
+
+        @Override
+        public void startOfScenarioLifeCycle(final Scenario scenario) {
+            event("startOfScenario", "line", scenario.getLine());
+        }
+
+        @Override
+        public void endOfScenarioLifeCycle(final Scenario scenario) {
+            event("endOfScenario", "line", scenario.getLine());
+        }
+
+        @Override
+        public void before(final Match match, final Result result) {
+            event("before", "hook", hook(match, result));
+        }
+
+        @Override
+        public void match(final Match match) {
+            event("match", "match", match.toMap());
+        }
+
+        @Override
+        public void result(final Result result) {
+            event("result", "result", result.toMap());
+        }
+
+        @Override
+        public void after(final Match match, final Result result) {
+            event("after", "hook", hook(match, result));
+        }
+
+        @Override
+        public void embedding(final String mimeType, final byte[] data) {
+            final Map<String, Object> embedding = new LinkedHashMap<String, Object>();
+            embedding.put("mime_type", mimeType);
+            embedding.put("data", Base64.encodeBytes(data));
+            event("embedding", "embedding", embedding);
+        }
+
+        @Override
+        public void write(final String text) {
+            event("write", "text", text);
+        }
+
+        @Override
+        public void eof() {
+            event("eof", null, null);
+            uri = null;
+        }
+
+        @Override
+        public void syntaxError(final String state, final String event, final List<String> legalEvents, final String uri, final Integer line) {
+            // no-op
+        }
+
+        @Override
+        public void done() {
+            // no-op
+        }
+
+        @Override
+        public void close() {
+            // no-op: the report is closed once all runtimes ended
+        }
+
+        private Map<String, Object> hook(final Match match, final Result result) {
+            final Map<String, Object> hook = new LinkedHashMap<String, Object>();
+            hook.put("match", match.toMap());
+            hook.put("result", result.toMap());
+            return hook;
+        }
+    }
+}
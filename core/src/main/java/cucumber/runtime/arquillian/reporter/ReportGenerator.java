@@ -0,0 +1,294 @@
+package cucumber.runtime.arquillian.reporter;
+
+import com.github.cukedoctor.Cukedoctor;
+import com.github.cukedoctor.api.CukedoctorConverter;
+import com.github.cukedoctor.api.DocumentAttributes;
+import com.github.cukedoctor.api.model.Feature;
+import com.github.cukedoctor.parser.FeatureParser;
+import com.github.cukedoctor.util.FileUtil;
+import cucumber.runtime.arquillian.config.CucumberConfiguration;
+import net.masterthought.cucumber.Configuration;
+import net.masterthought.cucumber.ReportBuilder;
+import org.asciidoctor.AttributesBuilder;
+import org.asciidoctor.OptionsBuilder;
+import org.asciidoctor.SafeMode;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.Arrays.asList;
+
+// html report and documentation of a run generated on a pool: json reports are parsed in parallel while asciidoctor
+// warms up and the html report is rendered concurrently. The configuration is captured since it is reset once the
+// container stopped.
+class ReportGenerator {
+    private static final Logger LOGGER = Logger.getLogger(ReportGenerator.class.getName());
+    private static final AtomicInteger ID = new AtomicInteger();
+
+    private final List<String> jsonReports;
+    private final boolean report;
+    private final String reportDirectory;
+    private final boolean generateDocs;
+    private final boolean generateDocsAsHtml;
+    private final String docsDirectory;
+    private final Map<String, String> docAttributes;
+    private final Map<String, String> adocOptions;
+    private final Map<String, String> adocAttributes;
+    private final int threads;
+    private final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+    ReportGenerator(final CucumberConfiguration configuration, final Collection<String> jsonReports) {
+        this.jsonReports = new ArrayList<String>(jsonReports);
+        this.report = configuration.isReport();
+        this.reportDirectory = configuration.getReportDirectory();
+        this.generateDocs = configuration.isGenerateDocs();
+        this.generateDocsAsHtml = configuration.isGenerateDocsAsHtml();
+        this.docsDirectory = configuration.getDocsDirectory();
+        this.docAttributes = configuration.getConfig("adoc.doc.attributes.");
+        this.adocOptions = configuration.getConfig("adoc.options.");
+        this.adocAttributes = configuration.getConfig("adoc.attributes.");
+        this.threads = Math.max(1, configuration.getReportThreads());
+    }
+
+    void start() {
+        final int id = ID.incrementAndGet();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "cukespace-report-" + id + "-" + counter.incrementAndGet());
+                thread.setDaemon(true); // JVM exit waits through CucumberReporter hook, not the pool
+                return thread;
+            }
+        });
+
+        try {
+            if (report) {
+                tasks.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        generateHtml();
+                    }
+                }));
+            }
+            if (generateDocs) {
+                final List<Future<List<Feature>>> features = new ArrayList<Future<List<Feature>>>(jsonReports.size());
+                for (final String jsonReport : jsonReports) {
+                    features.add(pool.submit(new Callable<List<Feature>>() {
+                        @Override
+                        public List<Feature> call() throws Exception {
+                            return FeatureParser.parse(jsonReport);
+                        }
+                    }));
+                }
+                if (generateDocsAsHtml) {
+                    AsciidoctorEngine.warmUp();
+                }
+                // submitted last: the pool queue is FIFO so what it waits for is already running or done
+                tasks.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        generateDocs(features);
+                        return null;
+                    }
+                }));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // propagates the first failure
+    void await() {
+        for (final Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    // @return false if the deadline was reached before the end of the generation, failures are logged
+    boolean awaitQuietly(final long deadline) {
+        for (final Future<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (final ExecutionException e) {
+                LOGGER.log(Level.SEVERE, "Can't generate Cucumber report", e.getCause());
+            } catch (final TimeoutException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isDone() {
+        for (final Future<?> task : tasks) {
+            if (!task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generateHtml() {
+        final File outputDir = new File(reportDirectory);
+
+        final Configuration reportConfiguration = new Configuration(outputDir, findProjectName());
+        reportConfiguration.setStatusFlags(false, false, false, false);
+        reportConfiguration.setBuildNumber("1");
+        reportConfiguration.setParallelTesting(false);
+        reportConfiguration.setRunWithJenkins(false);
+        reportConfiguration.setJenkinsBasePath("");
+
+        new ReportBuilder(new ArrayList<String>(jsonReports), reportConfiguration)
+                .generateReports();
+
+        LOGGER.info("Cucumber report available at "
+                + new File(outputDir, "feature-overview.html").getAbsolutePath());
+    }
+
+    private void generateDocs(final List<Future<List<Feature>>> parsed) throws Exception {
+        final List<Feature> features = new ArrayList<Feature>();
+        for (final Future<List<Feature>> feature : parsed) {
+            final List<Feature> parsedFeatures = feature.get();
+            if (parsedFeatures != null) { // unreadable json, already logged
+                features.addAll(parsedFeatures);
+            }
+        }
+        if (features.isEmpty()) {
+            LOGGER.info("No features found for Cucumber documentation");
+            return;
+        }
+
+        final DocumentAttributes da = bind(docAttributes, new DocumentAttributes());
+        CukedoctorConverter converter = Cukedoctor.instance(features, da);
+        String doc = converter.renderDocumentation();
+        File adocFile = FileUtil.saveFile(docsDirectory + "documentation.adoc", doc);
+
+        if (generateDocsAsHtml) {
+            //TODO provide a way to user configure documentation
+            final OptionsBuilder optBuilder = OptionsBuilder.options()
+                    .backend("html5")
+                    .safe(SafeMode.UNSAFE);
+
+            if (!adocOptions.isEmpty()) {
+                bind(adocOptions, optBuilder);
+            }
+
+            if (!adocAttributes.isEmpty()) {
+                optBuilder.attributes(bind(adocAttributes, AttributesBuilder.attributes()));
+            }
+
+            Map<String, Object> options = optBuilder
+                    .asMap();
+            //generate html(default backend) docs
+            AsciidoctorEngine.convertFile(adocFile, options);
+
+            //generate pdf docs
+            /*
+             * commented because of a classpath issue:
+             * java.lang.NoSuchMethodError: org.yaml.snakeyaml.events.DocumentStartEvent.getVersion()Lorg/yaml/snakeyaml/DumperOptions$Version;
+             */
+            //asciidoctor.convertFile(adocFile, OptionsBuilder.options().backend("pdf").safe(SafeMode.UNSAFE).asMap());
+
+            LOGGER.info("Cucumber documentation generated at " + adocFile.getParent());
+        }
+    }
+
+    private static RuntimeException rethrow(final Throwable cause) {
+        if (RuntimeException.class.isInstance(cause)) {
+            return RuntimeException.class.cast(cause);
+        }
+        if (Error.class.isInstance(cause)) {
+            throw Error.class.cast(cause);
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private static <T> T bind(final Map<String, String> config, final T instance) {
+        final Class<?>[] params = new Class<?>[] { String.class, boolean.class, File.class, Date.class, URI.class, int.class};
+
+        for (final Map.Entry<String, String> entry : config.entrySet()) {
+            final int dot = entry.getKey().lastIndexOf('.');
+            final String key = entry.getKey().substring(dot + 1);
+
+            boolean done = false;
+            for (final String method : asList(key, "set" + Character.toLowerCase(key.charAt(0)) + key.substring(1))) {
+                for (final Class<?> paramType : params) {
+                    try {
+                        final Method m = instance.getClass().getMethod(method, paramType);
+                        final Object val;
+                        if (paramType == boolean.class) {
+                            val = Boolean.valueOf(entry.getValue());
+                        } else if (paramType == int.class) {
+                            val = Integer.valueOf(entry.getValue());
+                        } else if (paramType == URI.class) {
+                            val = new URI(entry.getValue());
+                        } else if (paramType == Date.class) {
+                            String pattern = config.get(key.substring(0, dot) + ".dateFormat");
+                            if (pattern == null) {
+                                pattern = "yyyy-MM-dd";
+                            }
+                            val = new SimpleDateFormat(pattern).parse(entry.getValue());
+                        } else if (paramType == File.class) {
+                            val = new File(entry.getValue());
+                        } else {
+                            val = entry.getValue();
+                        }
+                        m.invoke(instance, val);
+                        done = true;
+                    } catch (final Throwable th) { // NCDFE as well
+                        // no-op
+                    }
+                }
+                if (done) {
+                    break;
+                }
+            }
+            if (!done) {
+                LOGGER.warning("Can't find matching property " + key + " in " + instance);
+            }
+        }
+        return instance;
+    }
+
+    private static String findProjectName() {
+        File file = new File(".");
+        while (file != null) {
+            if (Arrays.asList("target", "classes").contains(file.getName())) {
+                file = file.getParentFile();
+            } else {
+                return file.getName();
+            }
+        }
+        return "Cucumber Report";
+    }
+}
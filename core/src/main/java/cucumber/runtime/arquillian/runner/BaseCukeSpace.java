@@ -5,55 +5,81 @@ import cucumber.runtime.Backend;
 import cucumber.runtime.CucumberException;
 import cucumber.runtime.Env;
 import cucumber.runtime.FeatureBuilder;
+import cucumber.runtime.HookDefinition;
 import cucumber.runtime.RuntimeOptions;
 import cucumber.runtime.RuntimeOptionsFactory;
+import cucumber.runtime.StepDefinition;
 import cucumber.runtime.StepDefinitionMatch;
-import cucumber.runtime.arquillian.api.Tags;
+import cucumber.runtime.StopWatch;
+import cucumber.runtime.UndefinedStepsTracker;
 import cucumber.runtime.arquillian.api.event.AfterAfterHooks;
 import cucumber.runtime.arquillian.api.event.AfterBeforeHooks;
 import cucumber.runtime.arquillian.api.event.AfterStep;
 import cucumber.runtime.arquillian.api.event.BeforeAfterHooks;
 import cucumber.runtime.arquillian.api.event.BeforeBeforeHooks;
 import cucumber.runtime.arquillian.api.event.BeforeStep;
+import cucumber.runtime.arquillian.api.GlueScope;
 import cucumber.runtime.arquillian.backend.ArquillianBackend;
+import cucumber.runtime.arquillian.backend.ArquillianHookDefinition;
+import cucumber.runtime.arquillian.backend.ArquillianStepDefinition;
+import cucumber.runtime.arquillian.backend.IndexedGlue;
 import cucumber.runtime.arquillian.config.CucumberConfiguration;
+import cucumber.runtime.arquillian.feature.FailedScenarios;
+import cucumber.runtime.arquillian.feature.FeatureElements;
 import cucumber.runtime.arquillian.feature.Features;
+import cucumber.runtime.arquillian.feature.GherkinAst;
+import cucumber.runtime.arquillian.feature.ScenarioCache;
+import cucumber.runtime.arquillian.feature.Shards;
 import cucumber.runtime.arquillian.glue.Glues;
 import cucumber.runtime.arquillian.reporter.CucumberReporter;
+import cucumber.runtime.arquillian.reporter.JsonReport;
+import cucumber.runtime.arquillian.reporter.MetricsReport;
+import cucumber.runtime.arquillian.reporter.NdjsonReport;
 import cucumber.runtime.arquillian.shared.ClientServerFiles;
 import cucumber.runtime.arquillian.shared.EventHelper;
+import cucumber.runtime.arquillian.shared.IOs;
 import cucumber.runtime.io.Resource;
 import cucumber.runtime.io.ResourceLoader;
 import cucumber.runtime.model.CucumberFeature;
 import cucumber.runtime.model.PathWithLines;
+import cucumber.runtime.xstream.LocalizedXStreams;
 import gherkin.I18n;
 import gherkin.formatter.Formatter;
-import gherkin.formatter.JSONFormatter;
 import gherkin.formatter.Reporter;
 import gherkin.formatter.model.Match;
 import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
 import gherkin.formatter.model.Step;
 import gherkin.formatter.model.Tag;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -78,33 +104,136 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
         final InputStream configurationInputStream = classLoader.getResourceAsStream(ClientServerFiles.CONFIG);
         final Properties cukespaceConfigurationProperties = loadCucumberConfigurationProperties(configurationInputStream);
 
-        final Map<String, Collection<URL>> featuresMap = Features.createFeatureMap(CucumberConfiguration.instance().getTempDir(), cukespaceConfigurationProperties.getProperty(CucumberConfiguration.FEATURE_HOME), javaTestClass, classLoader);
-        final List<CucumberFeature> cucumberFeatures = getCucumberFeatures(testInstance, classLoader, featuresMap);
+        final int shardIndex = Integer.parseInt(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.SHARD_INDEX, "0").trim());
+        final int shardCount = Integer.parseInt(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.SHARD_COUNT, "1").trim());
 
-        final RuntimeOptions runtimeOptions = loadRuntimeOptions(javaTestClass, cukespaceConfigurationProperties);
+        // failed scenarios of the previous run, read before the report is overwritten
+        final String rerunFailed = cukespaceConfigurationProperties.getProperty(CucumberConfiguration.RERUN_FAILED, "").trim();
+        final Map<String, Collection<Long>> failed = CucumberConfiguration.isRerunFailed(rerunFailed) ?
+                FailedScenarios.read(CucumberConfiguration.reportFile(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE_PATH), javaTestClass)) :
+                Collections.<String, Collection<Long>>emptyMap();
+        final boolean onlyFailed = CucumberConfiguration.RERUN_FAILED_ONLY.equals(rerunFailed) && !failed.isEmpty();
+        if (CucumberConfiguration.isRerunFailed(rerunFailed)) {
+            LOGGER.info(failed.isEmpty() ? "No previously failed scenario for " + javaTestClass.getName() + ", running all scenarios" :
+                    "Rerunning previously failed scenarios of " + javaTestClass.getName() + (onlyFailed ? "" : " first"));
+        }
 
-        final boolean reported = Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE, "false"));
-        final StringBuilder reportBuilder = new StringBuilder();
-        if (reported) {
-            runtimeOptions.addPlugin(new JSONFormatter(reportBuilder));
+        final List<CucumberFeature> cucumberFeatures = getCucumberFeatures(
+                testInstance, javaTestClass, classLoader, cukespaceConfigurationProperties.getProperty(CucumberConfiguration.FEATURE_HOME), shardIndex, shardCount,
+                onlyFailed ? failed : null);
+        if (CucumberConfiguration.RERUN_FAILED_FIRST.equals(rerunFailed) && !failed.isEmpty()) {
+            FailedScenarios.failedFirst(cucumberFeatures, failed);
         }
 
-        final InputStream gluesInputStream = classLoader.getResourceAsStream(ClientServerFiles.GLUES_LIST);
+        final boolean reported = Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE, "false"));
+
+        final InputStream gluesInputStream = classResource(classLoader, javaTestClass, ClientServerFiles.GLUES_LIST);
         final Collection<Class<?>> glues = loadGlues(gluesInputStream, classLoader, javaTestClass);
 
-        final ArquillianBackend arquillianBackend = new ArquillianBackend(glues, javaTestClass, testInstance);
-        final CucumberRuntime cucumberRuntime = new CucumberRuntime(null, classLoader, singletonList(arquillianBackend), runtimeOptions);
-        final Formatter formatter = runtimeOptions.formatter(classLoader);
-        final Reporter reporter = runtimeOptions.reporter(classLoader);
-        runFeatures(cucumberFeatures, cucumberRuntime, getReporter(reporter, formatter, runtimeOptions), runNotifier);
+        final ScenarioCache scenarioCache = createScenarioCache(cukespaceConfigurationProperties, javaTestClass, glues, classLoader);
+        if (scenarioCache != null) {
+            scenarioCache.mark(cucumberFeatures);
+        }
+
+        // scenario mode runs each scenario/example row as a feature, each worker owning its glue instances
+        final int scenarioThreads = Integer.parseInt(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.SCENARIO_THREADS, "1").trim());
+        final boolean scenarioMode = scenarioThreads > 1;
+        final List<CucumberFeature> units = scenarioMode ? FeatureElements.split(cucumberFeatures) : cucumberFeatures;
+        final int threads = Math.min(units.size(), scenarioMode ?
+                scenarioThreads : Integer.parseInt(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.FEATURE_THREADS, "1").trim()));
+        final Queue<CucumberFeature> featureQueue = new ConcurrentLinkedQueue<CucumberFeature>(units);
+
+        // reports are streamed to their file while features run
+        final JsonReport jsonReport = reported ? new JsonReport(
+                CucumberConfiguration.reportFile(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE_PATH), javaTestClass),
+                scenarioMode ? unitsByUri(units) : null) : null;
+        final NdjsonReport ndjsonReport = reported && Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.NDJSON_REPORT, "false")) ?
+                new NdjsonReport(NdjsonReport.reportFile(jsonReport.getDestination())) : null;
+        final MetricsReport metrics = Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.METRICS, "false")) ?
+                new MetricsReport(
+                        MetricsReport.reportFile(CucumberConfiguration.reportFile(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE_PATH), javaTestClass)),
+                        javaTestClass, Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.METRICS_JMX, "false"))) : null;
+
+        final GlueScope.Scope glueScope = CucumberConfiguration.glueScope(
+                cukespaceConfigurationProperties.getProperty(CucumberConfiguration.GLUE_SCOPE, GlueScope.Scope.CLASS.name()));
+        // enrichment needs the protocol thread so glues are only created on demand when features run on it
+        final boolean lazyGlues = threads <= 1 && Boolean.parseBoolean(cukespaceConfigurationProperties.getProperty(CucumberConfiguration.LAZY_GLUES, "false").trim());
+        final List<FeatureWorker> workers = new ArrayList<FeatureWorker>();
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            // created on the protocol thread since glue instantiation/enrichment needs arquillian contexts
+            final RuntimeOptions runtimeOptions = loadRuntimeOptions(javaTestClass, cukespaceConfigurationProperties);
+            if (jsonReport != null) {
+                runtimeOptions.addPlugin(jsonReport.newFormatter());
+            }
+            if (ndjsonReport != null) {
+                runtimeOptions.addPlugin(ndjsonReport.newFormatter());
+            }
+            if (scenarioCache != null) {
+                runtimeOptions.addPlugin(scenarioCache.newRecorder());
+            }
+
+            final ArquillianBackend arquillianBackend = new ArquillianBackend(glues, javaTestClass, testInstance, glueScope,
+                    deploymentId(classLoader), lazyGlues);
+            arquillianBackend.setMetrics(metrics);
+            final CucumberRuntime cucumberRuntime = new CucumberRuntime(null, classLoader, singletonList(arquillianBackend), runtimeOptions, metrics);
+            cucumberRuntime.scenarioCache = scenarioCache;
+            final Formatter formatter = runtimeOptions.formatter(classLoader);
+            final Reporter reporter = runtimeOptions.reporter(classLoader);
+            workers.add(new FeatureWorker(featureQueue, arquillianBackend, cucumberRuntime, getReporter(reporter, formatter, runtimeOptions), runNotifier));
+        }
+
+        try {
+            if (workers.size() == 1) {
+                workers.iterator().next().call();
+            } else {
+                runFeaturesInParallel(workers, classLoader, scenarioMode);
+            }
+        } finally {
+            for (final FeatureWorker worker : workers) {
+                worker.backend.release();
+            }
+            if (scenarioCache != null) {
+                scenarioCache.store();
+            }
+            if (ndjsonReport != null) {
+                ndjsonReport.close();
+            }
+            if (metrics != null) {
+                metrics.close();
+            }
+            if (jsonReport != null) {
+                jsonReport.close();
+                // add it here too for client case
+                CucumberReporter.addReport(jsonReport.getDestination());
+            }
+        }
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        final Collection<String> snippets = new LinkedHashSet<String>();
+        for (final FeatureWorker worker : workers) {
+            errors.addAll(worker.cucumberRuntime.getErrors());
+            snippets.addAll(worker.cucumberRuntime.getSnippets());
+        }
+        handleCucumberTestErrors(errors, snippets);
+    }
 
-        if (reported) {
-            final String path = cukespaceConfigurationProperties.getProperty(CucumberConfiguration.REPORTABLE_PATH);
-            addReportTestIntoFile(path, javaTestClass, reportBuilder);
+    private static ScenarioCache createScenarioCache(final Properties properties, final Class<?> javaTestClass, final Collection<Class<?>> glues,
+                                                    final ClassLoader classLoader) {
+        if (!Boolean.parseBoolean(properties.getProperty(CucumberConfiguration.INCREMENTAL, "false"))) {
+            return null;
         }
 
-        handleCucumberTestErrors(cucumberRuntime.getErrors(), cucumberRuntime);
+        final Collection<Class<?>> fingerprinted = new ArrayList<Class<?>>(glues);
+        fingerprinted.add(javaTestClass);
+        return new ScenarioCache(
+                new File(properties.getProperty(CucumberConfiguration.INCREMENTAL_DIRECTORY), javaTestClass.getName() + ".properties"),
+                properties.getProperty(CucumberConfiguration.DEPLOYMENT_FINGERPRINT, ""), fingerprinted, classLoader);
+    }
 
+    // "" when not deployed by CucumberArchiveProcessor
+    private static String deploymentId(final ClassLoader classLoader) {
+        final InputStream stream = classLoader.getResourceAsStream(ClientServerFiles.DEPLOYMENT);
+        return stream == null ? "" : new String(IOs.slurp(stream)).trim();
     }
 
     private static Properties loadCucumberConfigurationProperties(final InputStream configurationInputStream) throws Exception {
@@ -125,64 +254,71 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
         return cucumberConfiguration.getConfigurationAsProperties();
     }
 
-    private static List<CucumberFeature> getCucumberFeatures(final Object testInstance, final ClassLoader classLoader, final Map<String, Collection<URL>> featuresMap) throws Exception {
-        final HashSet<Object> testFilters = new HashSet<Object>(createFilters(testInstance));
-        final InputStream featuresInputStream = classLoader.getResourceAsStream(ClientServerFiles.FEATURES_LIST);
-        return buildFeatureList(testFilters, featuresInputStream, classLoader, featuresMap);
+    private static List<CucumberFeature> getCucumberFeatures(final Object testInstance, final Class<?> javaTestClass, final ClassLoader classLoader, final String featureHome,
+                                                             final int shardIndex, final int shardCount, final Map<String, Collection<Long>> onlyFailed) throws Exception {
+        final HashSet<Object> testFilters = new HashSet<Object>(Features.createFilters(testInstance.getClass()));
+        final InputStream featuresInputStream = classResource(classLoader, testInstance.getClass(), ClientServerFiles.FEATURES_LIST);
+        final Map<String, Collection<URL>> featuresMap;
+        if (featuresInputStream == null) {
+            featuresMap = Features.createFeatureMap(CucumberConfiguration.instance().getTempDir(), featureHome, javaTestClass, classLoader);
+        } else { // already resolved on client side
+            featuresMap = Collections.emptyMap();
+        }
+        return buildFeatureList(testFilters, featuresInputStream, classLoader, featuresMap, shardIndex, shardCount, onlyFailed);
     }
 
-    private static List<Object> createFilters(final Object testInstance) {
-        final List<Object> filters = new ArrayList<Object>();
-
-        final Class<?> testInstanceClass = testInstance.getClass();
-
-        { // our API
-            final Tags tags = testInstanceClass.getAnnotation(Tags.class);
-            if (tags != null) {
-                filters.addAll(singletonList(tags.value()));
-            }
-        }
-
-        { // cucumber-api
-            final CucumberOptions options = testInstanceClass.getAnnotation(CucumberOptions.class);
-            if (options != null) {
-                if (options.tags().length > 0) {
-                    filters.addAll(Arrays.asList(options.tags()));
-                }
-                if (options.name().length > 0) {
-                    for (final String name : options.name()) {
-                        filters.add(Pattern.compile(name));
-                    }
-                }
-            }
+    // a suite deployment contains the lists of all its test classes
+    private static InputStream classResource(final ClassLoader classLoader, final Class<?> javaTestClass, final String name) {
+        final InputStream scoped = classLoader.getResourceAsStream(ClientServerFiles.CLASSES_FOLDER + javaTestClass.getName() + '/' + name);
+        if (scoped != null) {
+            return scoped;
         }
-
-        return filters;
+        return classLoader.getResourceAsStream(name);
     }
 
-    private static List<CucumberFeature> buildFeatureList(final Set<Object> testFilters, final InputStream featuresInputStream, final ClassLoader classLoader, final Map<String, Collection<URL>> featuresMap) throws Exception {
+    private static List<CucumberFeature> buildFeatureList(final Set<Object> testFilters, final InputStream featuresInputStream, final ClassLoader classLoader, final Map<String, Collection<URL>> featuresMap,
+                                                          final int shardIndex, final int shardCount, final Map<String, Collection<Long>> onlyFailed) throws Exception {
         final List<CucumberFeature> cucumberFeatures = new ArrayList<CucumberFeature>();
         final FeatureBuilder featureBuilder = new FeatureBuilder(cucumberFeatures);
 
         if (featuresInputStream != null) {
-
-            buildFeatureListFromFile(featuresInputStream, testFilters, featureBuilder, classLoader);
+            buildFeatureListFromFile(featuresInputStream, testFilters, featureBuilder, cucumberFeatures, classLoader, Shards.isActive(shardCount), onlyFailed);
         } else {
-            buildFeatureListFromMap(featuresMap, testFilters, featureBuilder);
+            buildFeatureListFromMap(featuresMap, testFilters, featureBuilder, shardIndex, shardCount, onlyFailed);
         }
 
         featureBuilder.close();
 
+        if (onlyFailed != null) {
+            final Iterator<CucumberFeature> features = cucumberFeatures.iterator();
+            while (features.hasNext()) {
+                if (features.next().getFeatureElements().isEmpty()) {
+                    features.remove();
+                }
+            }
+        }
+
         if (cucumberFeatures.isEmpty()) {
+            if (Shards.isActive(shardCount)) { // all scenarios can belong to other shards
+                LOGGER.info("No scenario for shard " + shardIndex + "/" + shardCount);
+                return cucumberFeatures;
+            }
+            if (onlyFailed != null) { // failed scenarios were removed or belong to another shard
+                LOGGER.info("No previously failed scenario found");
+                return cucumberFeatures;
+            }
             throw new IllegalArgumentException("No feature found");
         }
 
         return cucumberFeatures;
     }
 
-    private static void buildFeatureListFromFile(final InputStream featuresInputStream, final Set<Object> testFilters, final FeatureBuilder featureBuilder, final ClassLoader classLoader) throws Exception {
+    private static void buildFeatureListFromFile(final InputStream featuresInputStream, final Set<Object> testFilters, final FeatureBuilder featureBuilder,
+                                                 final List<CucumberFeature> cucumberFeatures, final ClassLoader classLoader,
+                                                 final boolean sharded, final Map<String, Collection<Long>> onlyFailed) throws Exception {
         final BufferedReader featuresFileReader = new BufferedReader(new InputStreamReader(featuresInputStream));
 
+        final Set<String> replayed = new HashSet<String>();
         String readerLine;
 
         while ((readerLine = featuresFileReader.readLine()) != null) {
@@ -192,18 +328,65 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
             }
 
             final PathWithLines pathWithLines = new PathWithLines(readerLine);
+            if (onlyFailed != null) { // only line filters, failed scenarios already matched the other ones
+                final List<Object> lines = FailedScenarios.lines(onlyFailed, pathWithLines.path, pathWithLines.lines);
+                if (!lines.isEmpty()) {
+                    parse(featureBuilder, cucumberFeatures, replayed, classLoader, pathWithLines.path, lines);
+                }
+                continue;
+            }
+            if (sharded) { // lines were computed on client side from all filters
+                parse(featureBuilder, cucumberFeatures, replayed, classLoader, pathWithLines.path, new ArrayList<Object>(pathWithLines.lines));
+                continue;
+            }
+
             testFilters.addAll(pathWithLines.lines);
-            featureBuilder.parse(new ClassLoaderResource(classLoader, pathWithLines.path), new ArrayList<Object>(testFilters));
+            parse(featureBuilder, cucumberFeatures, replayed, classLoader, pathWithLines.path, new ArrayList<Object>(testFilters));
         }
 
         featuresFileReader.close();
     }
 
-    private static void buildFeatureListFromMap(final Map<String, Collection<URL>> featuresMap, final Set<Object> testFilters, final FeatureBuilder featureBuilder) {
+    // features listed on client side come with their gherkin events so they are replayed instead of parsed
+    private static void parse(final FeatureBuilder featureBuilder, final List<CucumberFeature> cucumberFeatures, final Set<String> replayed,
+                              final ClassLoader classLoader, final String path, final List<Object> filters) {
+        final GherkinAst ast = GherkinAst.read(classLoader.getResourceAsStream(GherkinAst.resourceName(path)));
+        if (ast == null) {
+            featureBuilder.parse(new ClassLoaderResource(classLoader, path), filters);
+        } else if (replayed.add(ast.getChecksum())) { // FeatureBuilder ignores duplicated features too
+            ast.replay(featureBuilder, cucumberFeatures, path, filters);
+        }
+    }
+
+    private static void buildFeatureListFromMap(final Map<String, Collection<URL>> featuresMap, final Set<Object> testFilters, final FeatureBuilder featureBuilder,
+                                                final int shardIndex, final int shardCount, final Map<String, Collection<Long>> onlyFailed) {
         final Set<Map.Entry<String, Collection<URL>>> featuresEntriesSet = featuresMap.entrySet();
 
         for (final Map.Entry<String, Collection<URL>> entry : featuresEntriesSet) {
             final PathWithLines pathWithLines = new PathWithLines(entry.getKey());
+            if (Shards.isActive(shardCount)) {
+                final List<Object> filters = pathWithLines.lines.isEmpty() ? new ArrayList<Object>(testFilters) : new ArrayList<Object>(pathWithLines.lines);
+                for (final URL url : entry.getValue()) {
+                    final String shardKey = entry.getValue().size() == 1 ? pathWithLines.path : pathWithLines.path + url.getPath().substring(url.getPath().lastIndexOf('/') + 1);
+                    final List<Long> lines = Shards.select(shardKey, IOs.slurp(url), filters, shardIndex, shardCount);
+                    final List<Object> selected = onlyFailed == null ? new ArrayList<Object>(lines) : FailedScenarios.lines(onlyFailed, pathWithLines.path, lines);
+                    if (!lines.isEmpty() && !selected.isEmpty()) {
+                        featureBuilder.parse(new URLResource(pathWithLines.path, url), selected);
+                    }
+                }
+                continue;
+            }
+
+            if (onlyFailed != null) {
+                final List<Object> lines = FailedScenarios.lines(onlyFailed, pathWithLines.path, pathWithLines.lines);
+                if (!lines.isEmpty()) {
+                    for (final URL url : entry.getValue()) {
+                        featureBuilder.parse(new URLResource(pathWithLines.path, url), lines);
+                    }
+                }
+                continue;
+            }
+
             testFilters.addAll(pathWithLines.lines);
             for (final URL url : entry.getValue()) {
                 featureBuilder.parse(new URLResource(pathWithLines.path, url), new ArrayList<Object>(testFilters));
@@ -260,53 +443,64 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
         return glues;
     }
 
-    private void runFeatures(final List<CucumberFeature> cucumberFeatures, final CucumberRuntime cucumberRuntime, final CUCUMBER_REPORTER reporter, final TEST_NOTIFIER runNotifier) throws Exception {
-        for (final CucumberFeature feature : cucumberFeatures) {
-            LOGGER.info("Running " + feature.getPath());
-            try {
-                runFeature(feature, cucumberRuntime, reporter, runNotifier);
-            } catch (final Exception exception) {
-                throw exception;
-            } catch (final Error error) {
-                throw error;
-            } catch (final Throwable throwable) {
-                throw new IllegalStateException(throwable);
-            }
-        }
-        if (Formatter.class.isInstance(reporter)) {
-            final Formatter f = Formatter.class.cast(reporter);
-            f.done();
-            f.close();
+    // number of split features per feature path, a feature is reported once all of them ran
+    private static Map<String, Integer> unitsByUri(final List<CucumberFeature> units) {
+        final Map<String, Integer> unitsByUri = new HashMap<String, Integer>();
+        for (final CucumberFeature unit : units) {
+            final Integer count = unitsByUri.get(unit.getPath());
+            unitsByUri.put(unit.getPath(), count == null ? 1 : count + 1);
         }
-        cucumberRuntime.printSummary();
+        return unitsByUri;
     }
 
-    private static void addReportTestIntoFile(final String path, final Class<?> javaTestClass, final StringBuilder reportBuilder) throws Exception {
-        if (path != null) {
-            final File destination = CucumberConfiguration.reportFile(path, javaTestClass);
-            final File parentFile = destination.getParentFile();
-            if (!parentFile.exists() && !parentFile.mkdirs()) {
-                throw new IllegalArgumentException("Can't create " + parentFile.getAbsolutePath());
+    private static void runFeaturesInParallel(final List<? extends Callable<Void>> workers, final ClassLoader classLoader,
+                                              final boolean virtualThreads) throws Exception {
+        final ExecutorService executor = newExecutor(workers.size(), classLoader, virtualThreads);
+        final Thread thread = Thread.currentThread();
+        final ClassLoader oldLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader); // inherited by virtual threads
+        try {
+            for (final Future<Void> future : executor.invokeAll(workers)) {
+                try {
+                    future.get();
+                } catch (final ExecutionException ee) {
+                    final Throwable cause = ee.getCause();
+                    if (Exception.class.isInstance(cause)) {
+                        throw Exception.class.cast(cause);
+                    }
+                    if (Error.class.isInstance(cause)) {
+                        throw Error.class.cast(cause);
+                    }
+                    throw new IllegalStateException(cause);
+                }
             }
+        } finally {
+            thread.setContextClassLoader(oldLoader);
+            executor.shutdownNow();
+        }
+    }
 
-            FileWriter writer = null;
+    // scenario units mainly block (http, jdbc...) so they run on virtual threads when the JVM has them (java 21),
+    // a thread per worker so scenarioThreads still bounds the concurrency, and on a platform pool otherwise
+    private static ExecutorService newExecutor(final int size, final ClassLoader classLoader, final boolean virtualThreads) {
+        if (virtualThreads) {
             try {
-                writer = new FileWriter(destination);
-                writer.write(reportBuilder.toString());
-                writer.flush();
-            } catch (final IOException e) {
-                if (writer != null) {
-                    writer.close();
-                }
+                return ExecutorService.class.cast(Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+            } catch (final NoSuchMethodException e) {
+                LOGGER.fine("Virtual threads not available, using a thread pool");
+            } catch (final Exception e) {
+                LOGGER.warning("Can't create a virtual thread executor, using a thread pool: " + e.getMessage());
             }
-
-            // add it here too for client case
-            CucumberReporter.addReport(CucumberConfiguration.reportFile(path, javaTestClass));
         }
+        return Executors.newFixedThreadPool(size, new FeatureThreadFactory(classLoader));
     }
 
     public void handleCucumberTestErrors(final List<Throwable> errors, CucumberRuntime cucumberRuntime) throws Exception {
-        for (final String snippet : cucumberRuntime.getSnippets()) {
+        handleCucumberTestErrors(errors, cucumberRuntime.getSnippets());
+    }
+
+    private void handleCucumberTestErrors(final List<Throwable> errors, final Collection<String> snippets) throws Exception {
+        for (final String snippet : snippets) {
             errors.add(new CucumberException("Missing snippet: " + snippet));
         }
         if (!errors.isEmpty()) {
@@ -321,6 +515,68 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
         return "--no-monochrome";
     }
 
+    // runs features polled from a shared queue with its own runtime (glue instances) and reporter
+    private class FeatureWorker implements Callable<Void> {
+        private final Queue<CucumberFeature> features;
+        private final ArquillianBackend backend;
+        private final CucumberRuntime cucumberRuntime;
+        private final CUCUMBER_REPORTER reporter;
+        private final TEST_NOTIFIER runNotifier;
+
+        private FeatureWorker(final Queue<CucumberFeature> features, final ArquillianBackend backend, final CucumberRuntime cucumberRuntime,
+                              final CUCUMBER_REPORTER reporter, final TEST_NOTIFIER runNotifier) {
+            this.features = features;
+            this.backend = backend;
+            this.cucumberRuntime = cucumberRuntime;
+            this.reporter = reporter;
+            this.runNotifier = runNotifier;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            CucumberFeature feature;
+            while ((feature = features.poll()) != null) {
+                LOGGER.info("Running " + feature.getPath());
+                cucumberRuntime.featurePath = feature.getPath();
+                try {
+                    runFeature(feature, cucumberRuntime, reporter, runNotifier);
+                } catch (final Exception exception) {
+                    throw exception;
+                } catch (final Error error) {
+                    throw error;
+                } catch (final Throwable throwable) {
+                    throw new IllegalStateException(throwable);
+                } finally {
+                    backend.featureFinished();
+                }
+            }
+            if (Formatter.class.isInstance(reporter)) {
+                final Formatter f = Formatter.class.cast(reporter);
+                f.done();
+                f.close();
+            }
+            cucumberRuntime.printSummary();
+            return null;
+        }
+    }
+
+    private static class FeatureThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final ClassLoader classLoader;
+
+        private FeatureThreadFactory(final ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "cukespace-feature-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }
+    }
+
     private static class ClassLoaderResource implements Resource {
         private final String path;
         private final ClassLoader loader;
@@ -392,68 +648,247 @@ public abstract class BaseCukeSpace<CUCUMBER_REPORTER, TEST_NOTIFIER> {
     }
 
     public static class CucumberRuntime extends cucumber.runtime.Runtime {
+        // stateless so shared by all scenarios
+        private static final BeforeBeforeHooks BEFORE_BEFORE_HOOKS = new BeforeBeforeHooks();
+        private static final AfterBeforeHooks AFTER_BEFORE_HOOKS = new AfterBeforeHooks();
+        private static final BeforeAfterHooks BEFORE_AFTER_HOOKS = new BeforeAfterHooks();
+        private static final AfterAfterHooks AFTER_AFTER_HOOKS = new AfterAfterHooks();
+        private static final String CACHED = "cached: passed in a previous run with the same scenario, glues and deployment";
+
+        private final Collection<? extends Backend> backends;
+        private final RuntimeOptions runtimeOptions;
+        private final MetricsReport metrics; // null when disabled
+        // a runtime runs its steps on a single thread so the reporters are reused
+        private final StepReporter stepReporter;
+        private final HookReporter hookReporter;
+        private ScenarioCache scenarioCache; // null when not incremental
+        private String featurePath; // of the running feature
+        private boolean cached; // the running scenario passed before, its steps are reported as skipped and hooks don't run
+
         public CucumberRuntime(ResourceLoader resourceLoader,
                                ClassLoader classLoader,
                                Collection<? extends Backend> backends,
                                RuntimeOptions runtimeOptions) {
-            super(resourceLoader, classLoader, backends, runtimeOptions);
+            this(resourceLoader, classLoader, backends, runtimeOptions, null);
+        }
+
+        public CucumberRuntime(ResourceLoader resourceLoader,
+                               ClassLoader classLoader,
+                               Collection<? extends Backend> backends,
+                               RuntimeOptions runtimeOptions,
+                               MetricsReport metrics) {
+            super(resourceLoader, classLoader, backends, runtimeOptions, StopWatch.SYSTEM,
+                    new IndexedGlue(new UndefinedStepsTracker(), new LocalizedXStreams(classLoader)));
+            this.backends = backends;
+            this.runtimeOptions = runtimeOptions;
+            this.metrics = metrics;
+            this.stepReporter = new StepReporter(metrics);
+            this.hookReporter = metrics == null ? null : new HookReporter(metrics);
+        }
+
+        // undefined steps are tracked by the glue, not the runtime one
+        @Override
+        public List<String> getSnippets() {
+            return IndexedGlue.class.cast(getGlue()).getTracker()
+                    .getSnippets(backends, runtimeOptions.getSnippetType().getFunctionNameGenerator());
+        }
+
+        @Override
+        public void buildBackendWorlds(final Reporter reporter, final Set<Tag> tags, final Scenario gherkinScenario) {
+            super.buildBackendWorlds(reporter, tags, gherkinScenario);
+            IndexedGlue.class.cast(getGlue()).getTracker().reset();
+            cached = scenarioCache != null && scenarioCache.isCached(featurePath, gherkinScenario.getLine());
         }
 
         @Override
         public void runStep(final String featurePath, final Step step, final Reporter reporter, final I18n i18n) {
-            super.runStep(featurePath, step, new Reporter() {
-                @Override
-                public void match(final Match match) { // lazy to get the method and instance
-                    if (StepDefinitionMatch.class.isInstance(match)) {
-                        EventHelper.matched(StepDefinitionMatch.class.cast(match));
-                        EventHelper.fire(new BeforeStep(featurePath, step));
-                    }
-                    reporter.match(match);
+            if (cached) {
+                reporter.match(Match.UNDEFINED);
+                reporter.write(CACHED);
+                reporter.result(Result.SKIPPED); // the constant, junit reports it as ignored
+                return;
+            }
+
+            stepReporter.featurePath = featurePath;
+            stepReporter.step = step;
+            stepReporter.reporter = reporter;
+            stepReporter.start = metrics == null ? 0 : System.nanoTime();
+            try {
+                super.runStep(featurePath, step, stepReporter, i18n);
+            } finally {
+                stepReporter.featurePath = null;
+                stepReporter.step = null;
+                stepReporter.reporter = null;
+                stepReporter.location = null;
+            }
+        }
+
+        @Override
+        public void runBeforeHooks(final Reporter reporter, final Set<Tag> tags) {
+            if (cached) {
+                return;
+            }
+            prepare(getGlue().getBeforeHooks(), tags);
+            EventHelper.fire(BEFORE_BEFORE_HOOKS);
+            if (metrics == null) {
+                super.runBeforeHooks(reporter, tags);
+            } else {
+                final long start = System.nanoTime();
+                hookReporter.reporter = reporter;
+                try {
+                    super.runBeforeHooks(hookReporter, tags);
+                } finally {
+                    hookReporter.reporter = null;
+                    metrics.record(MetricsReport.SCENARIO, "beforeHooks", System.nanoTime() - start);
                 }
+            }
+            EventHelper.fire(AFTER_BEFORE_HOOKS);
+        }
 
-                @Override
-                public void before(final Match match, final Result result) {
-                    reporter.before(match, result);
+        @Override
+        public void runAfterHooks(final Reporter reporter, final Set<Tag> tags) {
+            if (cached) {
+                return;
+            }
+            prepare(getGlue().getAfterHooks(), tags);
+            EventHelper.fire(BEFORE_AFTER_HOOKS);
+            if (metrics == null) {
+                super.runAfterHooks(reporter, tags);
+            } else {
+                final long start = System.nanoTime();
+                hookReporter.reporter = reporter;
+                try {
+                    super.runAfterHooks(hookReporter, tags);
+                } finally {
+                    hookReporter.reporter = null;
+                    metrics.record(MetricsReport.SCENARIO, "afterHooks", System.nanoTime() - start);
                 }
+            }
+            EventHelper.fire(AFTER_AFTER_HOOKS);
+        }
 
-                @Override
-                public void result(final Result result) {
-                    reporter.result(result);
+        // lazy glues of the hooks about to run are created before cucumber times the hooks
+        private static void prepare(final List<HookDefinition> hooks, final Set<Tag> tags) {
+            for (int i = 0; i < hooks.size(); i++) { // no iterator, called for each scenario
+                final HookDefinition hook = hooks.get(i);
+                if (ArquillianHookDefinition.class.isInstance(hook) && hook.matches(tags)) {
+                    ArquillianHookDefinition.class.cast(hook).prepare();
                 }
+            }
+        }
 
-                @Override
-                public void after(final Match match, final Result result) {
-                    reporter.after(match, result);
-                    if (StepDefinitionMatch.class.isInstance(match)) {
-                        EventHelper.fire(new AfterStep(featurePath, step));
-                        EventHelper.unmatch();
+        // fires the step events around the reporter of the running step
+        private static class StepReporter implements Reporter {
+            private final MetricsReport metrics;
+            private String featurePath;
+            private Step step;
+            private Reporter reporter;
+            private long start; // of the step, when metrics are enabled
+            private String location; // of the matched step definition, when metrics are enabled
+
+            private StepReporter(final MetricsReport metrics) {
+                this.metrics = metrics;
+            }
+
+            @Override
+            public void match(final Match match) { // lazy to get the method and instance
+                if (StepDefinitionMatch.class.isInstance(match)) {
+                    if (metrics != null) {
+                        location = match.getLocation();
+                        metrics.record(MetricsReport.MATCH, location, System.nanoTime() - start);
+                    }
+                    final StepDefinition definition = EventHelper.matched(StepDefinitionMatch.class.cast(match));
+                    if (ArquillianStepDefinition.class.isInstance(definition)) { // lazy glue creation is not timed as the step
+                        ArquillianStepDefinition.class.cast(definition).prepare();
+                    }
+                    if (EventHelper.isObserved(BeforeStep.class)) {
+                        EventHelper.fire(new BeforeStep(featurePath, step));
                     }
                 }
+                reporter.match(match);
+            }
 
-                @Override
-                public void embedding(final String mimeType, final byte[] data) {
-                    reporter.embedding(mimeType, data);
+            @Override
+            public void before(final Match match, final Result result) {
+                reporter.before(match, result);
+            }
+
+            @Override
+            public void result(final Result result) {
+                if (location != null && result.getDuration() != null) {
+                    metrics.record(MetricsReport.STEP, location, result.getDuration());
                 }
+                reporter.result(result);
+            }
 
-                @Override
-                public void write(final String text) {
-                    reporter.write(text);
+            @Override
+            public void after(final Match match, final Result result) {
+                reporter.after(match, result);
+                if (StepDefinitionMatch.class.isInstance(match)) {
+                    if (EventHelper.isObserved(AfterStep.class)) {
+                        EventHelper.fire(new AfterStep(featurePath, step));
+                    }
+                    EventHelper.unmatch();
                 }
-            }, i18n);
-        }
+            }
 
-        @Override
-        public void runBeforeHooks(final Reporter reporter, final Set<Tag> tags) {
-            EventHelper.fire(new BeforeBeforeHooks());
-            super.runBeforeHooks(reporter, tags);
-            EventHelper.fire(new AfterBeforeHooks());
+            @Override
+            public void embedding(final String mimeType, final byte[] data) {
+                reporter.embedding(mimeType, data);
+            }
+
+            @Override
+            public void write(final String text) {
+                reporter.write(text);
+            }
         }
 
-        @Override
-        public void runAfterHooks(final Reporter reporter, final Set<Tag> tags) {
-            EventHelper.fire(new BeforeAfterHooks());
-            super.runAfterHooks(reporter, tags);
-            EventHelper.fire(new AfterAfterHooks());
+        // records the duration cucumber measured for each hook
+        private static class HookReporter implements Reporter {
+            private final MetricsReport metrics;
+            private Reporter reporter;
+
+            private HookReporter(final MetricsReport metrics) {
+                this.metrics = metrics;
+            }
+
+            @Override
+            public void before(final Match match, final Result result) {
+                record(match, result);
+                reporter.before(match, result);
+            }
+
+            @Override
+            public void after(final Match match, final Result result) {
+                record(match, result);
+                reporter.after(match, result);
+            }
+
+            @Override
+            public void match(final Match match) {
+                reporter.match(match);
+            }
+
+            @Override
+            public void result(final Result result) {
+                reporter.result(result);
+            }
+
+            @Override
+            public void embedding(final String mimeType, final byte[] data) {
+                reporter.embedding(mimeType, data);
+            }
+
+            @Override
+            public void write(final String text) {
+                reporter.write(text);
+            }
+
+            private void record(final Match match, final Result result) {
+                if (result.getDuration() != null) {
+                    metrics.record(MetricsReport.HOOK, match.getLocation(), result.getDuration());
+                }
+            }
         }
     }
 }
@@ -5,4 +5,16 @@ public interface ClientServerFiles {
     String FEATURES_LIST = "cukespace-features.txt";
     String ANNOTATION_LIST = "cukespace-annotations.txt";
     String CONFIG = "cukespace-config.properties";
+
+    // id of the deployment, kept out of the resources jar shared by the deployments with the same features and configuration
+    String DEPLOYMENT = "cukespace-deployment.txt";
+
+    // with a suite deployment glues and features lists are under CLASSES_FOLDER + test class name + '/'
+    String CLASSES_FOLDER = "cukespace/classes/";
+
+    // features parsed on client side (see GherkinAst) are under AST_FOLDER + feature path
+    String AST_FOLDER = "cukespace/ast/";
+
+    // hooks and step definitions of glue classes (see GlueIndex) are under GLUE_INDEX_FOLDER + class name + ".properties"
+    String GLUE_INDEX_FOLDER = "cukespace/glue-index/";
 }
@@ -12,15 +12,42 @@ import cucumber.runtime.arquillian.backend.ArquillianStepDefinition;
 import org.jboss.arquillian.core.api.Event;
 import org.jboss.arquillian.core.api.annotation.Inject;
 import org.jboss.arquillian.core.api.annotation.Observes;
+import org.jboss.arquillian.core.spi.EventContext;
+import org.jboss.arquillian.core.spi.Extension;
+import org.jboss.arquillian.core.spi.ObserverMethod;
 import org.jboss.arquillian.test.spi.event.suite.AfterClass;
 import org.jboss.arquillian.test.spi.event.suite.BeforeClass;
 import org.jboss.arquillian.test.spi.event.suite.TestEvent;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
 
 public class EventHelper {
+    private static final Logger LOGGER = Logger.getLogger(EventHelper.class.getName());
     private static final ThreadLocal<TestEvent> TEST_EVENT = new ThreadLocal<TestEvent>();
     private static final ThreadLocal<EventHelper> CURRENT = new ThreadLocal<EventHelper>();
+    private static final Field STEP_DEFINITION;
+    private static final TestEvent MARKER; // fired for steps not defined by an arquillian glue
+    static {
+        try {
+            STEP_DEFINITION = StepDefinitionMatch.class.getDeclaredField("stepDefinition");
+            STEP_DEFINITION.setAccessible(true);
+            MARKER = new TestEvent(TEST_EVENT, EventHelper.class.getMethod("currentEvent"));
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // observed event types, extensions don't change once the manager is started
+    private final Map<Class<?>, Boolean> observed = new ConcurrentHashMap<Class<?>, Boolean>();
+    private volatile Collection<Extension> extensions;
 
     @Inject
     private Event<BeforeBeforeHooks> beforeBeforeHooksEvent;
@@ -48,45 +75,47 @@ public class EventHelper {
         CURRENT.remove();
     }
 
-    public static void matched(final StepDefinitionMatch match) {
-        final TestEvent event;
+    // returns the matched step definition
+    public static StepDefinition matched(final StepDefinitionMatch match) {
+        final StepDefinition stepDefinition;
         try {
-            final Field field = StepDefinitionMatch.class.getDeclaredField("stepDefinition");
-            if (!field.isAccessible()) {
-                field.setAccessible(true);
-            }
-
-            final StepDefinition stepDefinition = StepDefinition.class.cast(field.get(match));
-            if (ArquillianStepDefinition.class.isInstance(stepDefinition)) {
-                final ArquillianStepDefinition arquillianStepDefinition = ArquillianStepDefinition.class.cast(stepDefinition);
-                event = new TestEvent(arquillianStepDefinition.getInstance(), arquillianStepDefinition.getMethod());
-                TEST_EVENT.set(event);
-            } else { // mock to still fire events but just as marker, TODO: don't use TestEvent? -> java 8
-                event = new TestEvent(TEST_EVENT, EventHelper.class.getMethod("currentEvent"));
-            }
-        } catch (final Exception e) {
+            stepDefinition = StepDefinition.class.cast(STEP_DEFINITION.get(match));
+        } catch (final IllegalAccessException e) {
             throw new IllegalStateException(e);
         }
-        TEST_EVENT.set(event);
+        TEST_EVENT.set(ArquillianStepDefinition.class.isInstance(stepDefinition) ?
+                ArquillianStepDefinition.class.cast(stepDefinition).getEvent() : MARKER);
+        return stepDefinition;
     }
 
     public static void unmatch() {
-        TEST_EVENT.remove();
+        TEST_EVENT.set(null); // remove() would make the next step allocate a new thread local entry
     }
 
     public static TestEvent currentEvent() {
         return TEST_EVENT.get();
     }
 
+    // lets callers skip creating an event nobody observes
+    public static boolean isObserved(final Class<?> type) {
+        final EventHelper mgr = CURRENT.get();
+        if (mgr == null) { // the null entry get() created is kept, removing it makes each call allocate a new one
+            return false;
+        }
+        return mgr.observes(type);
+    }
+
     // we can't get injected arquillian Manager so using this facade
     public static void fire(final Object event) {
         final EventHelper mgr = CURRENT.get();
-        if (mgr == null) {
-            CURRENT.remove();
+        if (mgr == null) { // see isObserved
             return;
         }
 
         final Class<?> cl = event.getClass();
+        if (!mgr.observes(cl)) {
+            return;
+        }
         if (cl == BeforeBeforeHooks.class) {
             mgr.beforeBeforeHooksEvent.fire(BeforeBeforeHooks.class.cast(event));
         } else if (cl == AfterBeforeHooks.class) {
@@ -103,4 +132,76 @@ public class EventHelper {
             throw new IllegalArgumentException("Unsupported event: " + event);
         }
     }
+
+    private boolean observes(final Class<?> type) {
+        Boolean result = observed.get(type);
+        if (result == null) {
+            result = resolveObserved(type);
+            observed.put(type, result);
+        }
+        return result;
+    }
+
+    // interceptors of generic events (TestEvent and its parents) only wrap the observers (contexts), they are ignored
+    private boolean resolveObserved(final Class<?> type) {
+        final Collection<Extension> all = extensions();
+        if (all == null) { // can't know, fire
+            return true;
+        }
+        for (final Extension extension : all) {
+            for (final ObserverMethod observer : extension.getObservers()) {
+                final Type observerType = observer.getType();
+                if (ParameterizedType.class.isInstance(observerType)
+                        && ParameterizedType.class.cast(observerType).getRawType() == EventContext.class) {
+                    final Class<?> intercepted = rawType(ParameterizedType.class.cast(observerType).getActualTypeArguments()[0]);
+                    if (intercepted != null && intercepted.isAssignableFrom(type) && !intercepted.isAssignableFrom(TestEvent.class)) {
+                        return true;
+                    }
+                } else {
+                    final Class<?> observedType = rawType(observerType);
+                    if (observedType != null && observedType.isAssignableFrom(type)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // extensions of the arquillian ManagerImpl behind our events
+    private Collection<Extension> extensions() {
+        if (extensions == null) {
+            try {
+                final Object manager = readField(beforeStepEvent, "manager");
+                final List<?> list = List.class.cast(readField(manager, "extensions"));
+                final Collection<Extension> found = new ArrayList<Extension>(list.size());
+                for (final Object extension : list) {
+                    found.add(Extension.class.cast(extension));
+                }
+                extensions = found;
+            } catch (final Exception e) {
+                LOGGER.fine("Can't resolve arquillian observers, firing all events: " + e.getMessage());
+                return null;
+            }
+        }
+        return extensions;
+    }
+
+    private static Object readField(final Object instance, final String name) throws Exception {
+        final Field field = instance.getClass().getDeclaredField(name);
+        if (!field.isAccessible()) {
+            field.setAccessible(true);
+        }
+        return field.get(instance);
+    }
+
+    private static Class<?> rawType(final Type type) {
+        if (Class.class.isInstance(type)) {
+            return Class.class.cast(type);
+        }
+        if (ParameterizedType.class.isInstance(type)) {
+            return rawType(ParameterizedType.class.cast(type).getRawType());
+        }
+        return null;
+    }
 }
@@ -0,0 +1,287 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.api.java.en.Given;
+import cucumber.runtime.RuntimeGlue;
+import cucumber.runtime.UndefinedStepsTracker;
+import cucumber.runtime.arquillian.api.GlueScope;
+import cucumber.runtime.arquillian.api.Resettable;
+import cucumber.runtime.xstream.LocalizedXStreams;
+import gherkin.I18n;
+import gherkin.formatter.model.Comment;
+import gherkin.formatter.model.Step;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArquillianBackendTest {
+    private static final I18n EN = new I18n("en");
+    private static final String DEPLOYMENT = ArquillianBackendTest.class.getName();
+
+    @After
+    public void undeploy() {
+        ArquillianBackend.undeployed(DEPLOYMENT);
+        SuiteGlue.CREATED.clear();
+        FeatureResettableGlue.CREATED.clear();
+        ScenarioResettableGlue.CREATED.clear();
+        FailingResetGlue.CREATED.set(0);
+    }
+
+    @Test
+    public void scenarioScopeNeedsAResettableGlue() {
+        assertNotResettable(GlueScope.Scope.SCENARIO, "scenario");
+        assertNotResettable(ScenarioGlue.class, GlueScope.Scope.CLASS, "scenario");
+    }
+
+    @Test
+    public void featureScopeNeedsAResettableGlue() {
+        assertNotResettable(GlueScope.Scope.FEATURE, "feature");
+        assertNotResettable(FeatureGlue.class, GlueScope.Scope.CLASS, "feature");
+    }
+
+    @Test
+    public void scopedGluesAreResetAtTheEndOfTheirScope() {
+        final ArquillianBackend backend = backend(GlueScope.Scope.FEATURE, FeatureResettableGlue.class, ScenarioResettableGlue.class, SuiteGlue.class);
+        load(backend);
+        final ScenarioResettableGlue scenario = ScenarioResettableGlue.CREATED.peek();
+        final FeatureResettableGlue feature = FeatureResettableGlue.CREATED.peek();
+
+        backend.disposeWorld();
+        assertEquals(1, scenario.resets);
+        assertEquals(0, feature.resets);
+
+        backend.featureFinished();
+        assertEquals(1, scenario.resets);
+        assertEquals(1, feature.resets);
+        assertFalse(SuiteGlue.CREATED.peek().released);
+
+        backend.release();
+        assertTrue(SuiteGlue.CREATED.peek().released);
+    }
+
+    @Test
+    public void suiteInstanceIsReusedByTheNextClassRun() {
+        final ArquillianBackend first = backend(GlueScope.Scope.CLASS, SuiteGlue.class);
+        load(first);
+        first.release();
+
+        final ArquillianBackend second = backend(GlueScope.Scope.CLASS, SuiteGlue.class);
+        run(load(second), "a suite glue");
+        assertEquals(1, SuiteGlue.CREATED.size());
+        assertSame(SuiteGlue.CREATED.peek(), SuiteGlue.LAST.get());
+    }
+
+    @Test
+    public void suiteInstanceIsNotSharedByConcurrentRuns() {
+        final ArquillianBackend first = backend(GlueScope.Scope.CLASS, SuiteGlue.class);
+        final ArquillianBackend second = backend(GlueScope.Scope.CLASS, SuiteGlue.class);
+        run(load(first), "a suite glue");
+        final Object firstInstance = SuiteGlue.LAST.get();
+        run(load(second), "a suite glue");
+        assertNotSame(firstInstance, SuiteGlue.LAST.get());
+        assertEquals(2, SuiteGlue.CREATED.size());
+    }
+
+    @Test
+    public void suiteInstanceIsUsedByOneThreadAtOnce() throws Exception {
+        final int threads = 4;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> runs = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                runs.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 100; i++) {
+                            final ArquillianBackend backend = backend(GlueScope.Scope.CLASS, SuiteGlue.class);
+                            run(load(backend), "a suite glue");
+                            Thread.yield();
+                            backend.release();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<?> run : runs) {
+                run.get(); // fails if an instance was acquired while in use
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(SuiteGlue.CREATED.size() <= threads);
+    }
+
+    @Test
+    public void instanceFailingItsResetIsDropped() {
+        final ArquillianBackend first = backend(GlueScope.Scope.SUITE, FailingResetGlue.class);
+        load(first);
+        first.release(); // logs the failure
+
+        final ArquillianBackend second = backend(GlueScope.Scope.SUITE, FailingResetGlue.class);
+        load(second);
+        assertEquals(2, FailingResetGlue.CREATED.get());
+    }
+
+    private static void assertNotResettable(final GlueScope.Scope defaultScope, final String scope) {
+        assertNotResettable(ClassGlue.class, defaultScope, scope);
+    }
+
+    private static void assertNotResettable(final Class<?> glueClass, final GlueScope.Scope defaultScope, final String scope) {
+        try {
+            load(backend(defaultScope, glueClass));
+            fail(glueClass.getName() + " is not resettable");
+        } catch (final IllegalArgumentException e) {
+            assertEquals(glueClass.getName() + " uses the " + scope + " glue scope so it must implement "
+                    + Resettable.class.getName() + " to clear its state", e.getMessage());
+        }
+    }
+
+    private static ArquillianBackend backend(final GlueScope.Scope defaultScope, final Class<?>... glues) {
+        final Collection<Class<?>> classes = new ArrayList<Class<?>>();
+        Collections.addAll(classes, glues);
+        return new ArquillianBackend(classes, Object.class, new Object(), defaultScope, DEPLOYMENT, false);
+    }
+
+    private static RuntimeGlue load(final ArquillianBackend backend) {
+        final RuntimeGlue glue = new RuntimeGlue(
+                new UndefinedStepsTracker(), new LocalizedXStreams(Thread.currentThread().getContextClassLoader()));
+        backend.loadGlue(glue, Collections.<String>emptyList());
+        return glue;
+    }
+
+    private static void run(final RuntimeGlue glue, final String step) {
+        try {
+            glue.stepDefinitionMatch("test.feature", new Step(Collections.<Comment>emptyList(), "Given ", step, 1, null, null), EN).runStep(EN);
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class ClassGlue {
+        @Given("^a class glue$")
+        public void step() {
+            // no-op
+        }
+    }
+
+    @GlueScope(GlueScope.Scope.SCENARIO)
+    public static class ScenarioGlue {
+        @Given("^a scenario glue$")
+        public void step() {
+            // no-op
+        }
+    }
+
+    @GlueScope(GlueScope.Scope.FEATURE)
+    public static class FeatureGlue {
+        @Given("^a feature glue$")
+        public void step() {
+            // no-op
+        }
+    }
+
+    // feature scoped by default
+    public static class FeatureResettableGlue implements Resettable {
+        private static final Queue<FeatureResettableGlue> CREATED = new ConcurrentLinkedQueue<FeatureResettableGlue>();
+
+        private int resets;
+
+        public FeatureResettableGlue() {
+            CREATED.add(this);
+        }
+
+        @Given("^a feature resettable glue$")
+        public void step() {
+            // no-op
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @GlueScope(GlueScope.Scope.SCENARIO)
+    public static class ScenarioResettableGlue implements Resettable {
+        private static final Queue<ScenarioResettableGlue> CREATED = new ConcurrentLinkedQueue<ScenarioResettableGlue>();
+
+        private int resets;
+
+        public ScenarioResettableGlue() {
+            CREATED.add(this);
+        }
+
+        @Given("^a scenario resettable glue$")
+        public void step() {
+            // no-op
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+    }
+
+    @GlueScope(GlueScope.Scope.SUITE)
+    public static class SuiteGlue implements Resettable {
+        private static final Queue<SuiteGlue> CREATED = new ConcurrentLinkedQueue<SuiteGlue>();
+        private static final ThreadLocal<SuiteGlue> LAST = new ThreadLocal<SuiteGlue>();
+
+        private final AtomicBoolean inUse = new AtomicBoolean();
+        private volatile boolean released;
+
+        public SuiteGlue() {
+            CREATED.add(this);
+        }
+
+        @Given("^a suite glue$")
+        public void step() {
+            if (!inUse.compareAndSet(false, true)) {
+                throw new IllegalStateException("used by another class run");
+            }
+            LAST.set(this);
+        }
+
+        @Override
+        public void reset() {
+            released = true;
+            inUse.set(false);
+        }
+    }
+
+    public static class FailingResetGlue implements Resettable {
+        private static final AtomicInteger CREATED = new AtomicInteger();
+
+        public FailingResetGlue() {
+            CREATED.incrementAndGet();
+        }
+
+        @Given("^a failing reset glue$")
+        public void step() {
+            // no-op
+        }
+
+        @Override
+        public void reset() {
+            throw new IllegalStateException("can't reset");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.api.java.en.Given;
+import cucumber.runtime.AmbiguousStepDefinitionsException;
+import cucumber.runtime.Glue;
+import cucumber.runtime.RuntimeGlue;
+import cucumber.runtime.StepDefinitionMatch;
+import cucumber.runtime.UndefinedStepsTracker;
+import cucumber.runtime.xstream.LocalizedXStreams;
+import gherkin.I18n;
+import gherkin.formatter.model.Comment;
+import gherkin.formatter.model.Step;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexedGlueTest {
+    private static final I18n EN = new I18n("en");
+
+    @Test
+    public void literalPrefixStopsAtTheFirstMetaCharacter() {
+        assertEquals("I have ", IndexedGlue.literalPrefix("^I have (\\d+) cukes$"));
+        assertEquals("I have ", IndexedGlue.literalPrefix("I have (\\d+) cukes"));
+        assertEquals("a step", IndexedGlue.literalPrefix("^a step$"));
+        assertEquals("", IndexedGlue.literalPrefix("^.* cukes$"));
+        assertEquals("", IndexedGlue.literalPrefix("^[Aa] step$"));
+        assertEquals("", IndexedGlue.literalPrefix(""));
+    }
+
+    @Test
+    public void literalPrefixAnchors() {
+        assertEquals("", IndexedGlue.literalPrefix("^"));
+        assertEquals("a", IndexedGlue.literalPrefix("a$"));
+        assertEquals("a", IndexedGlue.literalPrefix("a^b")); // a ^ not starting the pattern is not skipped
+    }
+
+    @Test
+    public void literalPrefixEscapes() {
+        assertEquals("a.b c", IndexedGlue.literalPrefix("^a\\.b c$"));
+        assertEquals("cost $", IndexedGlue.literalPrefix("^cost \\$(\\d+)$"));
+        assertEquals("(a) ", IndexedGlue.literalPrefix("^\\(a\\) (.*)$"));
+        assertEquals("a|b", IndexedGlue.literalPrefix("^a\\|b$"));
+        assertEquals("a ", IndexedGlue.literalPrefix("^a \\d+$")); // character classes
+        assertEquals("a ", IndexedGlue.literalPrefix("^a \\1$")); // back references
+        assertEquals("a", IndexedGlue.literalPrefix("^a\\"));
+    }
+
+    @Test
+    public void literalPrefixOptionalCharacters() {
+        assertEquals("cuke", IndexedGlue.literalPrefix("^cukes?$"));
+        assertEquals("colo", IndexedGlue.literalPrefix("^colou?r$"));
+        assertEquals("a", IndexedGlue.literalPrefix("^ab*$"));
+        assertEquals("a", IndexedGlue.literalPrefix("^ab{0,2}$"));
+        assertEquals("ab", IndexedGlue.literalPrefix("^ab+$")); // at least once
+        assertEquals("a", IndexedGlue.literalPrefix("^a\\.?b$"));
+        assertEquals("x", IndexedGlue.literalPrefix("^x\uD83E\uDD52?$")); // the whole surrogate pair is optional
+    }
+
+    @Test
+    public void literalPrefixTopLevelAlternation() {
+        assertEquals("", IndexedGlue.literalPrefix("^a cuke|some cukes$"));
+        assertEquals("I have ", IndexedGlue.literalPrefix("^I have (a|some) cukes$"));
+        assertEquals("a", IndexedGlue.literalPrefix("^a[|]b$"));
+        assertEquals("", IndexedGlue.literalPrefix("^(a)|b$"));
+    }
+
+    @Test
+    public void literalPrefixQuoting() {
+        assertEquals("", IndexedGlue.literalPrefix("^\\Qa.b\\E$"));
+        assertEquals("", IndexedGlue.literalPrefix("^a \\Q(b)\\E$"));
+    }
+
+    @Test
+    public void matchesLikeRuntimeGlue() {
+        final IndexedGlue indexed = glue();
+        final RuntimeGlue runtime = new RuntimeGlue(new UndefinedStepsTracker(), new LocalizedXStreams(loader()));
+        load(runtime);
+
+        for (final String text : new String[]{"I have 3 cukes", "I have some cukes", "a cuke", "no cuke", "I have"}) {
+            final Step step = step(text);
+            assertEquals(text, describe(runtime, step), describe(indexed, step));
+        }
+    }
+
+    @Test
+    public void ambiguousMatchesInPatternOrder() {
+        final IndexedGlue glue = glue();
+        try {
+            glue.stepDefinitionMatch("test.feature", step("I have 3 cukes"), EN);
+            fail("ambiguous step");
+        } catch (final AmbiguousStepDefinitionsException e) {
+            final List<String> patterns = new ArrayList<String>();
+            for (final StepDefinitionMatch match : e.getMatches()) {
+                patterns.add(match.getPattern());
+            }
+            assertEquals(Arrays.asList("^.* cukes$", "^I have (.*) cukes$", "^I have (\\d+) cukes$"), patterns);
+        }
+    }
+
+    @Test
+    public void unmatchedStep() {
+        assertNull(glue().stepDefinitionMatch("test.feature", step("nothing"), EN));
+    }
+
+    @Test
+    public void memoizedMatchArguments() {
+        final IndexedGlue glue = glue();
+        for (int i = 0; i < 2; i++) { // second time from the match cache
+            final StepDefinitionMatch match = glue.stepDefinitionMatch("test.feature", step("a cuke"), EN);
+            assertEquals("^a (cuke|cucumber)$", match.getPattern());
+            assertEquals("cuke", match.getArguments().get(0).getVal());
+            assertEquals(Integer.valueOf(2), match.getArguments().get(0).getOffset());
+        }
+    }
+
+    @Test
+    public void memoizedAmbiguousAndUndefinedSteps() {
+        final IndexedGlue indexed = glue();
+        final RuntimeGlue runtime = new RuntimeGlue(new UndefinedStepsTracker(), new LocalizedXStreams(loader()));
+        load(runtime);
+
+        for (int i = 0; i < 2; i++) { // second time from the match cache
+            indexed.getTracker().reset();
+            for (final String text : new String[]{"I have 3 cukes", "nothing"}) {
+                final Step step = step(text);
+                assertEquals(text, describe(runtime, step), describe(indexed, step));
+            }
+            assertTrue(indexed.getTracker().hasUndefinedSteps()); // tracked on cache hits too
+        }
+    }
+
+    @Test
+    public void newGlueInvalidatesMemoizedMatches() {
+        final IndexedGlue glue = glue();
+        assertEquals("undefined", describe(glue, step("a pickle")));
+        assertEquals("^a (cuke|cucumber)$ 1", describe(glue, step("a cuke")));
+
+        new ArquillianBackend(Collections.<Class<?>>emptyList(), OtherGlue.class, new OtherGlue())
+                .loadGlue(glue, Collections.<String>emptyList());
+
+        assertEquals("^a pickle$ 0", describe(glue, step("a pickle")));
+        assertEquals("ambiguous ^a (cuke|cucumber)$ ^a cuke$", describe(glue, step("a cuke")));
+    }
+
+    private static String describe(final Glue glue, final Step step) {
+        try {
+            final StepDefinitionMatch match = glue.stepDefinitionMatch("test.feature", step, EN);
+            return match == null ? "undefined" : match.getPattern() + " " + match.getArguments().size();
+        } catch (final AmbiguousStepDefinitionsException e) {
+            final StringBuilder builder = new StringBuilder("ambiguous");
+            for (final StepDefinitionMatch match : e.getMatches()) {
+                builder.append(' ').append(match.getPattern());
+            }
+            return builder.toString();
+        }
+    }
+
+    private static IndexedGlue glue() {
+        final IndexedGlue glue = new IndexedGlue(new UndefinedStepsTracker(), new LocalizedXStreams(loader()));
+        load(glue);
+        return glue;
+    }
+
+    private static void load(final Glue glue) {
+        new ArquillianBackend(Collections.<Class<?>>emptyList(), StubGlue.class, new StubGlue())
+                .loadGlue(glue, Collections.<String>emptyList());
+    }
+
+    private static Step step(final String name) {
+        return new Step(Collections.<Comment>emptyList(), "Given ", name, 1, null, null);
+    }
+
+    private static ClassLoader loader() {
+        return Thread.currentThread().getContextClassLoader();
+    }
+
+    public static class OtherGlue {
+        @Given("^a pickle$")
+        public void pickle() {
+            // no-op
+        }
+
+        @Given("^a cuke$")
+        public void cuke() {
+            // no-op
+        }
+    }
+
+    public static class StubGlue {
+        @Given("^I have (\\d+) cukes$")
+        public void count(final int count) {
+            // no-op
+        }
+
+        @Given("^I have (.*) cukes$")
+        public void any(final String count) {
+            // no-op
+        }
+
+        @Given("^.* cukes$")
+        public void cukes() {
+            // no-op
+        }
+
+        @Given("^a (cuke|cucumber)$")
+        public void cuke(final String name) {
+            // no-op
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package cucumber.runtime.arquillian.backend;
+
+import cucumber.runtime.CucumberException;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+
+public class MethodInvokerTest {
+    @Test
+    public void goodArguments() throws Exception {
+        assertSameOutcome("concat", "returned a1", "a", 1);
+        assertSameOutcome("concat", "returned null1", null, 1);
+        assertSameOutcome("widen", "returned 3", 3); // int to long
+        assertSameOutcome("widen", "returned 97", 'a');
+    }
+
+    @Test
+    public void mismatchedArguments() throws Exception {
+        final String failure = CucumberException.class.getName() + ": Failed to invoke "
+                + "cucumber.runtime.arquillian.backend.MethodInvokerTest$Target.concat(String,int) in file:";
+        assertSameOutcome("concat", failure, "a", "b");
+        assertSameOutcome("concat", failure, 1, 1);
+        assertSameOutcome("concat", failure, "a", null);
+        assertSameOutcome("concat", failure, "a");
+        assertSameOutcome("widen", CucumberException.class.getName() + ": Failed to invoke "
+                + "cucumber.runtime.arquillian.backend.MethodInvokerTest$Target.widen(long) in file:", 1.5);
+    }
+
+    @Test
+    public void exceptionsOfTheTarget() throws Exception {
+        assertSameOutcome("fail", IllegalStateException.class.getName() + ": boom", new IllegalStateException("boom"));
+        assertSameOutcome("fail", ClassCastException.class.getName() + ": cast", new ClassCastException("cast"));
+        assertSameOutcome("fail", NullPointerException.class.getName() + ": npe", new NullPointerException("npe"));
+        assertSameOutcome("fail", Exception.class.getName() + ": checked", new Exception("checked"));
+    }
+
+    private static void assertSameOutcome(final String name, final String expected, final Object... args) throws Exception {
+        final Target target = new Target();
+        Method method = null;
+        for (final Method m : Target.class.getMethods()) {
+            if (m.getName().equals(name)) {
+                method = m;
+            }
+        }
+        final String handle = outcome(new MethodInvoker.HandleInvoker(target, method), args);
+        final String reflection = outcome(new MethodInvoker.ReflectionInvoker(target, method), args);
+        assertEquals(reflection, handle);
+        assertEquals(expected, handle.startsWith(CucumberException.class.getName())
+                ? handle.substring(0, handle.indexOf(" in file:") + " in file:".length()) : handle);
+    }
+
+    private static String outcome(final MethodInvoker invoker, final Object[] args) {
+        try {
+            return "returned " + invoker.invoke(args, 0);
+        } catch (final Throwable t) {
+            return t.getClass().getName() + ": " + t.getMessage();
+        }
+    }
+
+    public static class Target {
+        public String concat(final String s, final int i) {
+            return s + i;
+        }
+
+        public long widen(final long l) {
+            return l;
+        }
+
+        public void fail(final Exception e) throws Exception {
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cucumber.runtime.arquillian.backend;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WatchdogTest {
+    @After
+    public void clearInterrupt() {
+        Thread.interrupted(); // don't leak to the next test
+    }
+
+    @Test
+    public void fastInvocation() throws Throwable {
+        assertEquals("ok", Watchdog.call(new Watchdog.Invocation() {
+            @Override
+            public Object invoke() {
+                return "ok";
+            }
+        }, TimeUnit.MINUTES.toMillis(1)));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void timeoutCarriesTheStuckStack() throws Throwable {
+        try {
+            Watchdog.call(new Watchdog.Invocation() {
+                @Override
+                public Object invoke() throws Throwable {
+                    stuck();
+                    return null;
+                }
+            }, 50);
+            fail("timed out");
+        } catch (final TimeoutException e) {
+            assertEquals("Timed out after 50ms.", e.getMessage());
+            final Throwable stuck = e.getCause();
+            assertEquals("Thread '" + Thread.currentThread().getName() + "' when the timeout was reached", stuck.getMessage());
+            assertTrue(hasFrame(stuck, "stuck"));
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void ignoredInterruptIsCleared() throws Throwable {
+        assertEquals("ignored", Watchdog.call(new Watchdog.Invocation() {
+            @Override
+            public Object invoke() {
+                busy(200);
+                return "ignored";
+            }
+        }, 50));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void foreignInterruptIsKept() throws Throwable {
+        Thread.currentThread().interrupt();
+        Watchdog.call(new Watchdog.Invocation() {
+            @Override
+            public Object invoke() {
+                busy(200);
+                return null;
+            }
+        }, 50);
+        assertTrue(Thread.currentThread().isInterrupted());
+    }
+
+    private static void stuck() throws InterruptedException {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+    }
+
+    // doesn't check the interrupt flag
+    private static void busy(final long millis) {
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            Thread.yield();
+        }
+    }
+
+    private static boolean hasFrame(final Throwable throwable, final String method) {
+        for (final StackTraceElement element : throwable.getStackTrace()) {
+            if (WatchdogTest.class.getName().equals(element.getClassName()) && method.equals(element.getMethodName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package cucumber.runtime.arquillian.client;
+
+import cucumber.runtime.arquillian.api.Features;
+import cucumber.runtime.arquillian.config.CucumberConfiguration;
+import cucumber.runtime.arquillian.shared.ClientServerFiles;
+import cucumber.runtime.arquillian.shared.IOs;
+import org.jboss.arquillian.core.api.Instance;
+import org.jboss.arquillian.test.spi.TestClass;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class CucumberArchiveProcessorTest {
+    @Test
+    public void resourcesJarSharedByDeploymentsWithTheSameFeatures() throws Exception {
+        final CucumberArchiveProcessor processor = processor();
+        final WebArchive first = ShrinkWrap.create(WebArchive.class, "first.war");
+        final WebArchive second = ShrinkWrap.create(WebArchive.class, "second.war");
+        processor.process(first, new TestClass(FirstTest.class));
+        processor.process(second, new TestClass(SecondTest.class));
+
+        assertSame(library(first, "cukespace-resources.jar"), library(second, "cukespace-resources.jar"));
+
+        // the deployment id is not in the shared jar
+        final Archive<?> firstDeployment = library(first, "cukespace-deployment.jar");
+        final Archive<?> secondDeployment = library(second, "cukespace-deployment.jar");
+        assertNotSame(firstDeployment, secondDeployment);
+        assertEquals(first.getId(), deploymentId(firstDeployment));
+        assertEquals(second.getId(), deploymentId(secondDeployment));
+    }
+
+    private static Archive<?> library(final WebArchive archive, final String name) {
+        return ArchiveAsset.class.cast(archive.get("/WEB-INF/lib/" + name).getAsset()).getArchive();
+    }
+
+    private static String deploymentId(final Archive<?> jar) {
+        return new String(IOs.slurp(jar.get(ClientServerFiles.DEPLOYMENT).getAsset().openStream()));
+    }
+
+    private static CucumberArchiveProcessor processor() throws Exception {
+        final CucumberArchiveProcessor processor = new CucumberArchiveProcessor();
+        final CucumberConfiguration configuration = CucumberConfiguration.from(new HashMap<String, String>());
+        inject(processor, "configuration", new Instance<CucumberConfiguration>() {
+            @Override
+            public CucumberConfiguration get() {
+                return configuration;
+            }
+        });
+        inject(processor, "suiteClasses", new Instance<CucumberSuiteDeployer.SuiteClasses>() {
+            @Override
+            public CucumberSuiteDeployer.SuiteClasses get() {
+                return null;
+            }
+        });
+        return processor;
+    }
+
+    private static void inject(final Object instance, final String name, final Object value) throws Exception {
+        final Field field = instance.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(instance, value);
+    }
+
+    @Features("cucumber/runtime/arquillian/client/archive.feature")
+    public static class FirstTest {
+    }
+
+    @Features("cucumber/runtime/arquillian/client/archive.feature")
+    public static class SecondTest {
+    }
+}
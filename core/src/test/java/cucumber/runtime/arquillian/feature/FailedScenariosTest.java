@@ -0,0 +1,106 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberTagStatement;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.FEATURE;
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.asList;
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FailedScenariosTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readFailedLines() throws IOException {
+        final Map<String, Collection<Long>> failed = FailedScenarios.read(report("[" +
+                "{\"uri\":\"cukes.feature\",\"elements\":[" +
+                "{\"type\":\"background\",\"steps\":[{\"result\":{\"status\":\"failed\"}}]}," +
+                "{\"type\":\"scenario\",\"line\":6,\"steps\":[{\"result\":{\"status\":\"passed\"}}]}," +
+                "{\"type\":\"background\",\"steps\":[{\"result\":{\"status\":\"passed\"}}]}," +
+                "{\"type\":\"scenario\",\"line\":14,\"steps\":[{\"result\":{\"status\":\"undefined\"}}]}," +
+                "{\"type\":\"scenario\",\"line\":15,\"steps\":[{\"result\":{\"status\":\"passed\"}},{\"result\":{\"status\":\"skipped\"}}]}," +
+                "{\"type\":\"scenario\",\"line\":19,\"before\":[{\"result\":{\"status\":\"failed\"}}]}," +
+                "{\"type\":\"scenario\",\"line\":26,\"after\":[{\"result\":{\"status\":\"failed\"}}]}]}," +
+                "{\"uri\":\"passed.feature\",\"elements\":[{\"type\":\"scenario\",\"line\":3,\"steps\":[{\"result\":{\"status\":\"passed\"}}]}]}," +
+                "{\"uri\":\"no-elements.feature\"}" +
+                "]"));
+
+        assertEquals(1, failed.size());
+        assertEquals(asList(6, 14, 19, 26), new ArrayList<Long>(failed.get("cukes.feature")));
+    }
+
+    @Test
+    public void unreadableReports() throws IOException {
+        assertTrue(FailedScenarios.read(new File(folder.getRoot(), "missing.json")).isEmpty());
+        assertTrue(FailedScenarios.read(report("{\"uri\":\"cukes.feature\"}")).isEmpty());
+        assertTrue(FailedScenarios.read(report("[{\"uri\":")).isEmpty());
+        assertTrue(FailedScenarios.read(report("[{\"uri\":\"cukes.feature\",\"elements\":[\"scenario\"]}]")).isEmpty());
+    }
+
+    @Test
+    public void onlyLines() {
+        final Map<String, Collection<Long>> failed = failed("cukes.feature", 6, 14);
+        assertEquals(new ArrayList<Object>(asList(6, 14)), FailedScenarios.lines(failed, "cukes.feature", Collections.<Long>emptyList()));
+        assertEquals(new ArrayList<Object>(asList(14)), FailedScenarios.lines(failed, "cukes.feature", asList(14, 15)));
+        assertTrue(FailedScenarios.lines(failed, "cukes.feature", asList(15)).isEmpty());
+        assertTrue(FailedScenarios.lines(failed, "other.feature", Collections.<Long>emptyList()).isEmpty());
+    }
+
+    @Test
+    public void failedFirst() {
+        final List<CucumberFeature> features = new ArrayList<CucumberFeature>();
+        features.addAll(parse("passed.feature", FEATURE));
+        features.addAll(parse("cukes.feature", FEATURE));
+        features.addAll(parse("other.feature", FEATURE));
+
+        FailedScenarios.failedFirst(features, failed("cukes.feature", 19, 21));
+
+        assertEquals("cukes.feature", features.get(0).getPath());
+        assertEquals("passed.feature", features.get(1).getPath());
+        assertEquals("other.feature", features.get(2).getPath());
+        assertEquals(asList(9, 21, 6), lines(features.get(0))); // an example row failed in the first outline
+        assertEquals(asList(6, 9, 21), lines(features.get(1)));
+    }
+
+    private File report(final String json) throws IOException {
+        final File file = folder.newFile();
+        final OutputStream stream = new FileOutputStream(file);
+        try {
+            stream.write(json.getBytes("UTF-8"));
+        } finally {
+            stream.close();
+        }
+        return file;
+    }
+
+    private static Map<String, Collection<Long>> failed(final String path, final long... lines) {
+        final Map<String, Collection<Long>> failed = new HashMap<String, Collection<Long>>();
+        failed.put(path, asList(lines));
+        return failed;
+    }
+
+    private static List<Long> lines(final CucumberFeature feature) {
+        final List<Long> lines = new ArrayList<Long>();
+        for (final CucumberTagStatement element : feature.getFeatureElements()) {
+            lines.add(element.getGherkinModel().getLine().longValue());
+        }
+        return lines;
+    }
+}
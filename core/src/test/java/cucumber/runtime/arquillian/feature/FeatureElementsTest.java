@@ -0,0 +1,122 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.FeatureBuilder;
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenario;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.model.ExamplesTableRow;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureElementsTest {
+    static final String FEATURE = "Feature: cukes\n" +
+            "\n" +
+            "  Background:\n" +
+            "    Given a belly\n" +
+            "\n" +
+            "  Scenario: eat\n" +
+            "    When I eat 3 cukes\n" +
+            "\n" +
+            "  Scenario Outline: eat many\n" +
+            "    When I eat <n> cukes\n" +
+            "\n" +
+            "    Examples:\n" +
+            "      | n |\n" +
+            "      | 1 |\n" +
+            "      | 2 |\n" +
+            "\n" +
+            "    Examples: more\n" +
+            "      | n |\n" +
+            "      | 3 |\n" +
+            "\n" +
+            "  Scenario Outline: single row\n" +
+            "    When I eat <n> cukes\n" +
+            "\n" +
+            "    Examples:\n" +
+            "      | n |\n" +
+            "      | 4 |\n";
+
+    @Test
+    public void singleElementFeatures() {
+        final List<CucumberFeature> features = parse("cukes.feature", FEATURE);
+        final List<CucumberFeature> units = FeatureElements.split(features);
+
+        assertEquals(5, units.size());
+        final List<Long> lines = new ArrayList<Long>();
+        for (final CucumberFeature unit : units) {
+            assertEquals("cukes.feature", unit.getPath());
+            assertSame(features.get(0).getGherkinFeature(), unit.getGherkinFeature());
+            assertSame(features.get(0).getI18n(), unit.getI18n());
+            assertEquals(1, unit.getFeatureElements().size());
+            lines.add(line(unit.getFeatureElements().get(0)));
+        }
+        assertEquals(asList(6, 14, 15, 19, 26), lines);
+    }
+
+    @Test
+    public void exampleRowsKeepTheirOutline() {
+        final List<CucumberFeature> units = FeatureElements.split(parse("cukes.feature", FEATURE));
+        for (final CucumberFeature unit : units.subList(1, 4)) {
+            final CucumberScenarioOutline outline = CucumberScenarioOutline.class.cast(unit.getFeatureElements().get(0));
+            assertEquals(Integer.valueOf(9), outline.getGherkinModel().getLine());
+            assertEquals(1, outline.getSteps().size());
+
+            final CucumberExamples examples = outline.getCucumberExamplesList().get(0);
+            assertEquals(2, examples.getExamples().getRows().size()); // header + the row
+            final List<CucumberScenario> scenarios = examples.createExampleScenarios();
+            assertEquals(1, scenarios.size());
+            assertNotNull(scenarios.get(0).getCucumberBackground());
+        }
+        assertEquals("more", CucumberScenarioOutline.class.cast(units.get(3).getFeatureElements().get(0))
+                .getCucumberExamplesList().get(0).getExamples().getName());
+    }
+
+    @Test
+    public void keepsSingleRowOutlinesAndScenarios() {
+        final List<CucumberFeature> features = parse("cukes.feature", FEATURE);
+        final List<CucumberFeature> units = FeatureElements.split(features);
+        assertSame(features.get(0).getFeatureElements().get(0), units.get(0).getFeatureElements().get(0));
+        assertSame(features.get(0).getFeatureElements().get(2), units.get(4).getFeatureElements().get(0));
+    }
+
+    @Test
+    public void noFeature() {
+        assertTrue(FeatureElements.split(Collections.<CucumberFeature>emptyList()).isEmpty());
+    }
+
+    static List<CucumberFeature> parse(final String path, final String content) {
+        final List<CucumberFeature> features = new ArrayList<CucumberFeature>();
+        final FeatureBuilder builder = new FeatureBuilder(features);
+        GherkinAst.parse(path, content.getBytes()).replay(builder, features, path, Collections.<Object>emptyList());
+        builder.close();
+        return features;
+    }
+
+    static List<Long> asList(final long... values) {
+        final List<Long> list = new ArrayList<Long>();
+        for (final long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    // scenario line or line of the last example row of an outline
+    private static long line(final CucumberTagStatement element) {
+        if (CucumberScenarioOutline.class.isInstance(element)) {
+            final List<CucumberExamples> examples = CucumberScenarioOutline.class.cast(element).getCucumberExamplesList();
+            final List<ExamplesTableRow> rows = examples.get(examples.size() - 1).getExamples().getRows();
+            return rows.get(rows.size() - 1).getLine();
+        }
+        return element.getGherkinModel().getLine();
+    }
+}
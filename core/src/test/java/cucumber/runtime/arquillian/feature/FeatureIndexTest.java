@@ -0,0 +1,138 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.arquillian.api.Features;
+import cucumber.runtime.arquillian.shared.IOs;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureIndexTest {
+    private static final String KEY = "classpath:indexed";
+    private static final String HIT = "#not rewritten";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private String tempDir;
+    private ClassLoader loader;
+
+    @Before
+    public void tree() throws IOException {
+        root = folder.newFolder("classpath");
+        tempDir = folder.newFolder("temp").getAbsolutePath();
+        loader = new URLClassLoader(new URL[]{root.toURI().toURL()}, FeatureIndexTest.class.getClassLoader());
+        write("indexed/a.feature", "Feature: a\n");
+        write("indexed/nested/b.feature", "Feature: b\n");
+    }
+
+    @Test
+    public void unchangedTreeHitsTheIndex() throws IOException {
+        assertEquals(names("a.feature", "b.feature"), names(createFeatureMap(null)));
+        markIndex();
+
+        assertEquals(names("a.feature", "b.feature"), names(createFeatureMap(null)));
+        assertTrue(isIndexMarked());
+    }
+
+    @Test
+    public void addedNestedFeatureMissesTheIndex() throws IOException {
+        createFeatureMap(null);
+        markIndex();
+
+        write("indexed/nested/deeper/c.feature", "Feature: c\n");
+        assertEquals(names("a.feature", "b.feature", "c.feature"), names(createFeatureMap(null)));
+        assertFalse(isIndexMarked());
+    }
+
+    @Test
+    public void modifiedFeatureMissesTheIndex() throws IOException {
+        createFeatureMap(null);
+        markIndex();
+
+        write("indexed/nested/b.feature", "Feature: b updated\n");
+        assertEquals(names("a.feature", "b.feature"), names(createFeatureMap(null)));
+        assertFalse(isIndexMarked());
+    }
+
+    @Test
+    public void changedFeatureHomeMissesTheIndex() throws IOException {
+        createFeatureMap(null);
+        markIndex();
+
+        createFeatureMap(folder.newFolder("home").getAbsolutePath());
+        assertFalse(isIndexMarked());
+    }
+
+    private Map<String, Collection<URL>> createFeatureMap(final String featureHome) {
+        return FeatureIndex.createFeatureMap(tempDir, featureHome, IndexedTest.class, loader);
+    }
+
+    private File index() {
+        return new File(tempDir, "index/" + IndexedTest.class.getName() + ".properties");
+    }
+
+    // a comment the index keeps while it is not rewritten
+    private void markIndex() throws IOException {
+        assertTrue(index().isFile());
+        final OutputStream os = new FileOutputStream(index(), true);
+        try {
+            os.write((HIT + "\n").getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    private boolean isIndexMarked() throws IOException {
+        return new String(IOs.slurp(index().toURI().toURL()), "UTF-8").contains(HIT);
+    }
+
+    private void write(final String path, final String content) throws IOException {
+        final File file = new File(root, path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Can't create " + file.getParentFile());
+        }
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    private static Collection<String> names(final String... names) {
+        final Collection<String> sorted = new TreeSet<String>();
+        for (final String name : names) {
+            sorted.add(name);
+        }
+        return sorted;
+    }
+
+    private static Collection<String> names(final Map<String, Collection<URL>> featureMap) {
+        final Collection<String> names = new TreeSet<String>();
+        for (final URL url : featureMap.get(KEY)) {
+            final String path = url.getPath();
+            names.add(path.substring(path.lastIndexOf('/') + 1));
+        }
+        return names;
+    }
+
+    @Features(KEY)
+    public static class IndexedTest {
+    }
+}
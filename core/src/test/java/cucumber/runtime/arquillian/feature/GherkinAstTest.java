@@ -0,0 +1,170 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.FeatureBuilder;
+import cucumber.runtime.io.Resource;
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.model.ExamplesTableRow;
+import gherkin.formatter.model.Step;
+import gherkin.formatter.model.Tag;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class GherkinAstTest {
+    private static final String TAGGED = "@cukes\n" +
+            "Feature: tagged cukes\n" +
+            "\n" +
+            "  Background:\n" +
+            "    Given a belly\n" +
+            "\n" +
+            "  @fast\n" +
+            "  Scenario: eat\n" +
+            "    When I eat 3 cukes\n" +
+            "\n" +
+            "  @slow\n" +
+            "  Scenario Outline: eat many\n" +
+            "    When I eat <n> cukes\n" +
+            "\n" +
+            "    @fast\n" +
+            "    Examples:\n" +
+            "      | n |\n" +
+            "      | 1 |\n" +
+            "      | 2 |\n" +
+            "\n" +
+            "    Examples: more\n" +
+            "      | n |\n" +
+            "      | 3 |\n";
+
+    private static final String FRENCH = "# language: fr\n" +
+            "Fonctionnalité: concombres\n" +
+            "\n" +
+            "  Scénario: manger\n" +
+            "    Quand je mange 3 concombres\n";
+
+    @Test
+    public void replayWithoutFilters() {
+        assertSameFeatures("tagged.feature", TAGGED, Collections.emptyList());
+        assertSameFeatures("fr.feature", FRENCH, Collections.emptyList());
+        assertSameFeatures("cukes.feature", FeatureElementsTest.FEATURE, Collections.emptyList());
+    }
+
+    @Test
+    public void replayWithTagFilters() {
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList("@fast"));
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList("~@slow"));
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList("@cukes"));
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList("@none"));
+    }
+
+    @Test
+    public void replayWithLineAndNameFilters() {
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList(8L));
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList(19L, 23L)); // example rows
+        assertSameFeatures("tagged.feature", TAGGED, Arrays.<Object>asList(Pattern.compile("many")));
+    }
+
+    @Test
+    public void replaysDontShareRows() {
+        final GherkinAst ast = roundTrip(GherkinAst.parse("tagged.feature", TAGGED.getBytes()));
+        assertEquals(describe(parse("tagged.feature", TAGGED, Arrays.<Object>asList(18L))),
+                describe(replay(ast, "tagged.feature", Arrays.<Object>asList(18L))));
+        assertEquals(describe(parse("tagged.feature", TAGGED, Collections.emptyList())),
+                describe(replay(ast, "tagged.feature", Collections.emptyList())));
+        assertEquals(describe(parse("tagged.feature", TAGGED, Arrays.<Object>asList(23L))),
+                describe(replay(ast, "tagged.feature", Arrays.<Object>asList(23L))));
+    }
+
+    private static void assertSameFeatures(final String path, final String content, final List<Object> filters) {
+        final GherkinAst ast = roundTrip(GherkinAst.parse(path, content.getBytes()));
+        assertEquals(filters.toString(), describe(parse(path, content, filters)), describe(replay(ast, path, filters)));
+    }
+
+    private static GherkinAst roundTrip(final GherkinAst ast) {
+        final GherkinAst read = GherkinAst.read(new ByteArrayInputStream(ast.toBytes()));
+        assertNotNull(read);
+        assertEquals(ast.getChecksum(), read.getChecksum());
+        return read;
+    }
+
+    private static List<CucumberFeature> replay(final GherkinAst ast, final String path, final List<Object> filters) {
+        final List<CucumberFeature> features = new ArrayList<CucumberFeature>();
+        final FeatureBuilder builder = new FeatureBuilder(features);
+        ast.replay(builder, features, path, filters);
+        builder.close();
+        return features;
+    }
+
+    private static List<CucumberFeature> parse(final String path, final String content, final List<Object> filters) {
+        final List<CucumberFeature> features = new ArrayList<CucumberFeature>();
+        final FeatureBuilder builder = new FeatureBuilder(features);
+        builder.parse(new Resource() {
+            @Override
+            public String getPath() {
+                return path;
+            }
+
+            @Override
+            public String getAbsolutePath() {
+                return path;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteArrayInputStream(content.getBytes());
+            }
+
+            @Override
+            public String getClassName(final String extension) {
+                return path;
+            }
+        }, filters);
+        builder.close();
+        return features;
+    }
+
+    private static String describe(final List<CucumberFeature> features) {
+        final StringBuilder builder = new StringBuilder();
+        for (final CucumberFeature feature : features) {
+            builder.append(feature.getPath()).append(' ').append(feature.getI18n().getIsoCode()).append(' ')
+                    .append(feature.getGherkinFeature().getKeyword()).append(": ").append(feature.getGherkinFeature().getName())
+                    .append(tags(feature.getGherkinFeature().getTags())).append('\n');
+            for (final CucumberTagStatement element : feature.getFeatureElements()) {
+                builder.append("  ").append(element.getVisualName()).append(':').append(element.getGherkinModel().getLine())
+                        .append(tags(element.getGherkinModel().getTags())).append('\n');
+                for (final Step step : element.getSteps()) {
+                    builder.append("    ").append(step.getKeyword()).append(step.getName()).append(':').append(step.getLine()).append('\n');
+                }
+                if (CucumberScenarioOutline.class.isInstance(element)) {
+                    for (final CucumberExamples examples : CucumberScenarioOutline.class.cast(element).getCucumberExamplesList()) {
+                        builder.append("    ").append(examples.getExamples().getKeyword()).append(": ").append(examples.getExamples().getName())
+                                .append(tags(examples.getExamples().getTags())).append('\n');
+                        for (final ExamplesTableRow row : examples.getExamples().getRows()) {
+                            builder.append("      ").append(row.getCells()).append(':').append(row.getLine()).append('\n');
+                        }
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String tags(final List<Tag> tags) {
+        final StringBuilder builder = new StringBuilder();
+        for (final Tag tag : tags) {
+            builder.append(' ').append(tag.getName());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,254 @@
+package cucumber.runtime.arquillian.feature;
+
+import cucumber.runtime.model.CucumberExamples;
+import cucumber.runtime.model.CucumberFeature;
+import cucumber.runtime.model.CucumberScenarioOutline;
+import cucumber.runtime.model.CucumberTagStatement;
+import gherkin.formatter.Argument;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Comment;
+import gherkin.formatter.model.ExamplesTableRow;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.Tag;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.FEATURE;
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScenarioCacheTest {
+    private static final String PATH = "cukes.feature";
+    // scenario 6, outlines 9 (rows 14, 15 and 19) and 21 (row 26), with the header rows of the examples
+    private static final List<Long> ALL = asList(6, 9, 13, 14, 15, 18, 19, 21, 25, 26);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private final List<Long> runLines = new ArrayList<Long>(); // not cached in the last run
+
+    @Before
+    public void firstRun() {
+        file = new File(folder.getRoot(), "cache/Test.properties");
+        final ScenarioCache cache = cache("deployment", glueLoader("v1"));
+        run(cache, features(FEATURE), Collections.<Long, String>emptyMap());
+        assertEquals(asList(6, 14, 15, 19, 26), runLines); // nothing cached yet
+    }
+
+    @Test
+    public void unchangedScenariosAreCached() {
+        assertEquals(ALL, nextRun(FEATURE));
+        assertTrue(runLines.isEmpty());
+    }
+
+    @Test
+    public void changedStep() {
+        assertEquals(asList(9, 13, 14, 15, 18, 19, 21, 25, 26), nextRun(FEATURE.replace("I eat 3 cukes", "I eat 4 cukes")));
+        assertEquals(asList(6), runLines);
+    }
+
+    @Test
+    public void changedBackground() {
+        assertEquals(asList(), nextRun(FEATURE.replace("Given a belly", "Given an empty belly")));
+    }
+
+    @Test
+    public void changedScenarioTags() {
+        final String scenarioTag = FEATURE.replace("    Given a belly\n\n", "    Given a belly\n  @wip\n"); // same lines
+        assertEquals(asList(9, 13, 14, 15, 18, 19, 21, 25, 26), nextRun(scenarioTag));
+    }
+
+    @Test
+    public void changedExamplesTags() {
+        final String examplesTag = FEATURE.replace("    When I eat <n> cukes\n\n    Examples:\n      | n |\n      | 1 |",
+                "    When I eat <n> cukes\n    @fast\n    Examples:\n      | n |\n      | 1 |");
+        assertEquals(asList(6, 21, 25, 26), nextRun(examplesTag));
+    }
+
+    @Test
+    public void changedOutlineRow() {
+        assertEquals(asList(6, 21, 25, 26), nextRun(FEATURE.replace("| 2 |", "| 7 |")));
+        assertEquals(asList(14, 15, 19), runLines);
+    }
+
+    @Test
+    public void changedGlueBytecode() {
+        final ScenarioCache cache = cache("deployment", glueLoader("v2"));
+        final List<CucumberFeature> features = features(FEATURE);
+        cache.mark(features);
+        assertEquals(asList(), cached(cache));
+    }
+
+    @Test
+    public void changedDeployment() {
+        final ScenarioCache cache = cache("other deployment", glueLoader("v1"));
+        final List<CucumberFeature> features = features(FEATURE);
+        cache.mark(features);
+        assertEquals(asList(), cached(cache));
+    }
+
+    @Test
+    public void failedOutlineRowIsNotCached() throws IOException {
+        // rerun with a new glue so all scenarios run, one row fails
+        final ScenarioCache rerun = cache("deployment", glueLoader("v2"));
+        run(rerun, features(FEATURE), Collections.singletonMap(15L, Result.FAILED));
+
+        final ScenarioCache next = cache("deployment", glueLoader("v2"));
+        final List<CucumberFeature> features = features(FEATURE);
+        next.mark(features);
+        assertEquals(asList(6, 21, 25, 26), cached(next));
+        assertFalse(stored().containsKey(PATH + ":9")); // dropped, it passed with the first glue
+        assertTrue(stored().containsKey(PATH + ":6"));
+    }
+
+    @Test
+    public void onlyPassedResultsAreCached() {
+        final Map<Long, String> results = new HashMap<Long, String>();
+        results.put(6L, "undefined");
+        results.put(15L, "pending");
+        results.put(26L, Result.SKIPPED.getStatus());
+        run(cache("deployment", glueLoader("v2")), features(FEATURE), results);
+
+        final ScenarioCache next = cache("deployment", glueLoader("v2"));
+        final List<CucumberFeature> features = features(FEATURE);
+        next.mark(features);
+        assertEquals(asList(), cached(next));
+    }
+
+    @Test
+    public void failedHookIsNotCached() {
+        final ScenarioCache cache = cache("deployment", glueLoader("v2"));
+        final List<CucumberFeature> features = features(FEATURE);
+        cache.mark(features);
+        final Object recorder = cache.newRecorder();
+        Formatter.class.cast(recorder).uri(PATH);
+        lifecycle(recorder, 6, Result.PASSED, true);
+        cache.store();
+
+        final ScenarioCache next = cache("deployment", glueLoader("v2"));
+        next.mark(features);
+        assertFalse(next.isCached(PATH, 6));
+    }
+
+    private List<Long> nextRun(final String content) {
+        final ScenarioCache cache = cache("deployment", glueLoader("v1"));
+        final List<CucumberFeature> features = features(content);
+        runLines.clear();
+        run(cache, features, Collections.<Long, String>emptyMap());
+        return cached(cache);
+    }
+
+    // runs the scenarios and example rows which are not cached, passing unless in results
+    private void run(final ScenarioCache cache, final List<CucumberFeature> features, final Map<Long, String> results) {
+        cache.mark(features);
+        runLines.clear();
+        final Object recorder = cache.newRecorder();
+        Formatter.class.cast(recorder).uri(PATH);
+        for (final long line : scenarioLines(features)) {
+            if (!cache.isCached(PATH, (int) line)) {
+                runLines.add(line);
+                lifecycle(recorder, line, results.containsKey(line) ? results.get(line) : Result.PASSED, false);
+            }
+        }
+        cache.store();
+    }
+
+    private static void lifecycle(final Object recorder, final long line, final String status, final boolean failingHook) {
+        final Formatter formatter = Formatter.class.cast(recorder);
+        final Reporter reporter = Reporter.class.cast(recorder);
+        final Scenario scenario = new Scenario(
+                Collections.<Comment>emptyList(), Collections.<Tag>emptyList(), "Scenario", "s", "", (int) line, "s");
+        final Match match = new Match(Collections.<Argument>emptyList(), "Steps.step()");
+        formatter.startOfScenarioLifeCycle(scenario);
+        reporter.before(match, new Result(Result.PASSED, 1L, null));
+        reporter.result(new Result(status, 1L, null));
+        reporter.after(match, new Result(failingHook ? Result.FAILED : Result.PASSED, 1L, null));
+        formatter.endOfScenarioLifeCycle(scenario);
+    }
+
+    // scenarios and example rows, as the runtime executes them
+    private static List<Long> scenarioLines(final List<CucumberFeature> features) {
+        final List<Long> lines = new ArrayList<Long>();
+        for (final CucumberTagStatement element : features.get(0).getFeatureElements()) {
+            if (CucumberScenarioOutline.class.isInstance(element)) {
+                for (final CucumberExamples examples : CucumberScenarioOutline.class.cast(element).getCucumberExamplesList()) {
+                    final List<ExamplesTableRow> rows = examples.getExamples().getRows();
+                    for (final ExamplesTableRow row : rows.subList(1, rows.size())) {
+                        lines.add(row.getLine().longValue());
+                    }
+                }
+            } else {
+                lines.add(element.getGherkinModel().getLine().longValue());
+            }
+        }
+        return lines;
+    }
+
+    private static List<Long> cached(final ScenarioCache cache) {
+        final List<Long> lines = new ArrayList<Long>();
+        for (int line = 1; line <= 30; line++) {
+            if (cache.isCached(PATH, line)) {
+                lines.add((long) line);
+            }
+        }
+        return lines;
+    }
+
+    private Properties stored() throws IOException {
+        final Properties properties = new Properties();
+        final InputStream is = new FileInputStream(file);
+        try {
+            properties.load(is);
+        } finally {
+            is.close();
+        }
+        return properties;
+    }
+
+    private ScenarioCache cache(final String deployment, final ClassLoader loader) {
+        final Collection<Class<?>> glues = Arrays.<Class<?>>asList(Glue.class);
+        return new ScenarioCache(file, deployment, glues, loader);
+    }
+
+    private static List<CucumberFeature> features(final String content) {
+        return FeatureElementsTest.parse(PATH, content);
+    }
+
+    // serves a fake bytecode for the glue class
+    private static ClassLoader glueLoader(final String bytecode) {
+        return new ClassLoader(ScenarioCacheTest.class.getClassLoader()) {
+            @Override
+            public InputStream getResourceAsStream(final String name) {
+                if (name.equals(Glue.class.getName().replace('.', '/') + ".class")) {
+                    return new ByteArrayInputStream(bytecode.getBytes());
+                }
+                return super.getResourceAsStream(name);
+            }
+        };
+    }
+
+    public static class Glue {
+    }
+}
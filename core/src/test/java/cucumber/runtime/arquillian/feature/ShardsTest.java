@@ -0,0 +1,66 @@
+package cucumber.runtime.arquillian.feature;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.FEATURE;
+import static cucumber.runtime.arquillian.feature.FeatureElementsTest.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShardsTest {
+    private static final String PATH = "cukes.feature";
+
+    @Test
+    public void active() {
+        assertFalse(Shards.isActive(0));
+        assertFalse(Shards.isActive(1));
+        assertTrue(Shards.isActive(2));
+    }
+
+    @Test
+    public void stableAcrossJvms() { // String#hashCode() of "cukes.feature:<line>" modulo 3
+        assertEquals(asList(6, 19), select(0, 3, Collections.<Object>emptyList()));
+        assertEquals(asList(14, 26), select(1, 3, Collections.<Object>emptyList()));
+        assertEquals(asList(15), select(2, 3, Collections.<Object>emptyList()));
+    }
+
+    @Test
+    public void eachScenarioInExactlyOneShard() {
+        for (int count = 1; count <= 7; count++) {
+            final List<Long> all = new ArrayList<Long>();
+            for (int index = 0; index < count; index++) {
+                for (final Long line : select(index, count, Collections.<Object>emptyList())) {
+                    assertFalse(line + " in several shards of " + count, all.contains(line));
+                    all.add(line);
+                }
+            }
+            Collections.sort(all);
+            assertEquals(asList(6, 14, 15, 19, 26), all);
+        }
+    }
+
+    @Test
+    public void filtersBeforeSharding() {
+        final List<Object> filters = new ArrayList<Object>();
+        filters.add(14L);
+        filters.add(15L);
+        assertEquals(asList(14), select(1, 3, filters));
+        assertEquals(asList(15), select(2, 3, filters));
+        assertTrue(select(0, 3, filters).isEmpty());
+    }
+
+    @Test
+    public void withLines() {
+        assertEquals("cukes.feature:6:19", Shards.withLines(PATH, asList(6, 19)));
+        assertEquals("cukes.feature", Shards.withLines(PATH, Collections.<Long>emptyList()));
+    }
+
+    private static List<Long> select(final int index, final int count, final List<Object> filters) {
+        return Shards.select(PATH, FEATURE.getBytes(), filters, index, count);
+    }
+}
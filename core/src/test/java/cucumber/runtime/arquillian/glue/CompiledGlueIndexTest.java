@@ -0,0 +1,198 @@
+package cucumber.runtime.arquillian.glue;
+
+import cucumber.api.java.en.Given;
+import cucumber.runtime.arquillian.processor.GlueIndexProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeNotNull;
+
+// glue index written by GlueIndexProcessor at compile time and read back by CompiledGlueIndex
+public class CompiledGlueIndexTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void folderRoundTrip() throws Exception {
+        final File classes = compileGlues();
+        final CompiledGlueIndex index = CompiledGlueIndex.of(loader(classes));
+        assertNotNull(index);
+        assertGlues(index);
+    }
+
+    @Test
+    public void jarRoundTrip() throws Exception {
+        final File jar = jar(compileGlues());
+        final CompiledGlueIndex index = CompiledGlueIndex.of(loader(jar));
+        assertNotNull(index);
+        assertGlues(index);
+    }
+
+    @Test
+    public void cachedPerLoader() throws Exception {
+        final ClassLoader loader = loader(compileGlues());
+        assertSame(CompiledGlueIndex.of(loader), CompiledGlueIndex.of(loader));
+        assertSame(CompiledGlueIndex.of(loader).glues("glues"), CompiledGlueIndex.of(loader).glues("glues"));
+    }
+
+    @Test
+    public void partialIndexIsIgnored() throws Exception {
+        final File classes = compileGlues();
+        compile(classes, false, source("glues/Added.java", "package glues; public class Added {}"));
+
+        final CompiledGlueIndex index = CompiledGlueIndex.of(loader(classes));
+        assertNotNull(index);
+        assertNull(index.glues("glues")); // the index doesn't know Added: scan
+        assertEquals(sorted("glues.other.OtherSteps"), sorted(index.glues("glues.other")));
+    }
+
+    @Test
+    public void noIndex() throws Exception {
+        final File classes = folder.newFolder();
+        compile(classes, false, source("glues/Steps.java", "package glues; public class Steps {}"));
+        assertNull(CompiledGlueIndex.of(loader(classes)));
+        assertNull(CompiledGlueIndex.of(null));
+    }
+
+    private static void assertGlues(final CompiledGlueIndex index) {
+        assertEquals(sorted("glues.Steps", "glues.Steps$Nested", "glues.other.OtherSteps", "glues.sub.Hooks"), sorted(index.glues("glues")));
+        assertEquals(sorted("glues.sub.Hooks"), sorted(index.glues("glues.sub")));
+        assertEquals(sorted(), sorted(index.glues("glues.empty")));
+        assertNull(index.glues("")); // default package
+        assertEquals(sorted(Given.class.getName(), "cucumber.api.java.Before"), sorted(index.annotations()));
+    }
+
+    private File compileGlues() throws IOException {
+        final File classes = folder.newFolder();
+        compile(classes, true,
+                source("glues/Steps.java", "package glues;\n" +
+                        "public class Steps {\n" +
+                        "  @cucumber.api.java.en.Given(\"^a step$\") public void step() {}\n" +
+                        "  public static class Nested { @cucumber.api.java.en.Given(\"^a nested step$\") public void step() {} }\n" +
+                        "  public void helper() { new Runnable() { public void run() {} }; }\n" +
+                        "}"),
+                source("glues/Helper.java", "package glues; public class Helper { public void help() {} }"),
+                source("glues/AbstractSteps.java", "package glues;\n" +
+                        "public abstract class AbstractSteps { @cucumber.api.java.en.Given(\"^an abstract step$\") public void step() {} }"),
+                source("glues/sub/Hooks.java", "package glues.sub;\n" +
+                        "public class Hooks { @cucumber.api.java.Before public void before() {} }"),
+                source("glues/other/OtherSteps.java", "package glues.other;\n" +
+                        "public class OtherSteps { @cucumber.api.java.en.Given(\"^another step$\") public void step() {} }"),
+                source("glues/empty/Empty.java", "package glues.empty; public class Empty {}"));
+        return classes;
+    }
+
+    private void compile(final File classes, final boolean index, final File... sources) throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler); // a JRE
+        final List<String> args = new ArrayList<String>(Arrays.asList(
+                "-d", classes.getAbsolutePath(),
+                "-classpath", classes.getAbsolutePath() + File.pathSeparator + location(Given.class) + File.pathSeparator + location(GlueIndexProcessor.class)));
+        if (index) {
+            args.addAll(Arrays.asList("-processor", GlueIndexProcessor.class.getName()));
+        } else {
+            args.add("-proc:none");
+        }
+        for (final File source : sources) {
+            args.add(source.getAbsolutePath());
+        }
+        assertEquals(0, compiler.run(null, null, null, args.toArray(new String[args.size()])));
+    }
+
+    private File source(final String path, final String content) throws IOException {
+        final File file = new File(folder.getRoot(), "src/" + path);
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Can't create " + file.getParentFile());
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private File jar(final File classes) throws IOException {
+        final File jar = folder.newFile("glues.jar");
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            addEntries(out, classes, "");
+        } finally {
+            out.close();
+        }
+        return jar;
+    }
+
+    private static void addEntries(final JarOutputStream out, final File folder, final String prefix) throws IOException {
+        final File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                out.putNextEntry(new JarEntry(prefix + file.getName() + '/'));
+                out.closeEntry();
+                addEntries(out, file, prefix + file.getName() + '/');
+                continue;
+            }
+            out.putNextEntry(new JarEntry(prefix + file.getName()));
+            final InputStream in = new FileInputStream(file);
+            try {
+                final byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+            out.closeEntry();
+        }
+    }
+
+    private static ClassLoader loader(final File root) throws IOException {
+        return new URLClassLoader(new URL[]{root.toURI().toURL()}, null); // only the compiled glues
+    }
+
+    private static String location(final Class<?> type) throws IOException {
+        try {
+            return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (final Exception e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    private static Collection<String> sorted(final String... values) {
+        return new TreeSet<String>(Arrays.asList(values));
+    }
+
+    private static Collection<String> sorted(final Collection<String> values) {
+        return values == null ? null : new TreeSet<String>(values);
+    }
+}
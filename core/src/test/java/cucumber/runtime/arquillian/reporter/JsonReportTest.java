@@ -0,0 +1,119 @@
+package cucumber.runtime.arquillian.reporter;
+
+import gherkin.deps.com.google.gson.JsonArray;
+import gherkin.deps.com.google.gson.JsonObject;
+import gherkin.deps.com.google.gson.JsonParser;
+import gherkin.formatter.Argument;
+import gherkin.formatter.Formatter;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Comment;
+import gherkin.formatter.model.Feature;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.Step;
+import gherkin.formatter.model.Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+
+public class JsonReportTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void wholeFeatures() throws IOException {
+        final JsonReport report = new JsonReport(new File(folder.getRoot(), "report.json"), null);
+        run(report.newFormatter(), "a.feature", "first", true);
+        run(report.newFormatter(), "b.feature", "second", true);
+        report.close();
+
+        final JsonArray features = read(report);
+        assertEquals(2, features.size());
+        assertEquals("a.feature", features.get(0).getAsJsonObject().get("uri").getAsString());
+        assertEquals("b.feature", features.get(1).getAsJsonObject().get("uri").getAsString());
+    }
+
+    @Test
+    public void scenarioUnitsOfAFeatureAreMerged() throws IOException {
+        final JsonReport report = new JsonReport(new File(folder.getRoot(), "report.json"), singletonMap("a.feature", 2));
+        final Object first = report.newFormatter();
+        final Object second = report.newFormatter();
+        run(first, "a.feature", "first", true);
+        run(second, "a.feature", "second", true);
+        report.close();
+
+        final JsonArray features = read(report);
+        assertEquals(1, features.size());
+        final JsonArray elements = features.get(0).getAsJsonObject().getAsJsonArray("elements");
+        assertEquals(2, elements.size());
+        assertEquals("first", elements.get(0).getAsJsonObject().get("name").getAsString());
+        assertEquals("second", elements.get(1).getAsJsonObject().get("name").getAsString());
+    }
+
+    @Test
+    public void featureInterruptedBeforeEof() throws IOException {
+        final JsonReport report = new JsonReport(new File(folder.getRoot(), "report.json"), null);
+        run(report.newFormatter(), "a.feature", "done", true);
+        run(report.newFormatter(), "b.feature", "interrupted", false);
+        report.close();
+
+        final JsonArray features = read(report);
+        assertEquals(2, features.size());
+        assertEquals("interrupted", scenario(features.get(1).getAsJsonObject()).get("name").getAsString());
+    }
+
+    @Test
+    public void scenarioUnitInterruptedBeforeEof() throws IOException {
+        final JsonReport report = new JsonReport(new File(folder.getRoot(), "report.json"), singletonMap("a.feature", 3));
+        run(report.newFormatter(), "a.feature", "done", true);
+        run(report.newFormatter(), "a.feature", "interrupted", false); // and the third unit never ran
+        report.close();
+
+        final JsonArray features = read(report);
+        assertEquals(1, features.size());
+        assertEquals(2, features.get(0).getAsJsonObject().getAsJsonArray("elements").size());
+    }
+
+    private static void run(final Object formatter, final String uri, final String scenarioName, final boolean eof) {
+        final Formatter f = Formatter.class.cast(formatter);
+        final Reporter r = Reporter.class.cast(formatter);
+        final Scenario scenario = new Scenario(
+                Collections.<Comment>emptyList(), Collections.<Tag>emptyList(), "Scenario", scenarioName, "", 3, "f;" + scenarioName);
+        f.uri(uri);
+        f.feature(new Feature(Collections.<Comment>emptyList(), Collections.<Tag>emptyList(), "Feature", "f", "", 1, "f"));
+        f.startOfScenarioLifeCycle(scenario);
+        f.scenario(scenario);
+        f.step(new Step(Collections.<Comment>emptyList(), "Given ", "a step", 4, null, null));
+        r.match(new Match(Collections.<Argument>emptyList(), "Steps.step()"));
+        if (!eof) { // stuck in the step
+            return;
+        }
+        r.result(new Result(Result.PASSED, 1L, null));
+        f.endOfScenarioLifeCycle(scenario);
+        f.eof();
+    }
+
+    private static JsonObject scenario(final JsonObject feature) {
+        return feature.getAsJsonArray("elements").get(0).getAsJsonObject();
+    }
+
+    private static JsonArray read(final JsonReport report) throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(report.getDestination()), "UTF-8");
+        try {
+            return new JsonParser().parse(reader).getAsJsonArray();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package cucumber.runtime.arquillian.reporter;
+
+import gherkin.deps.com.google.gson.JsonObject;
+import gherkin.deps.com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsReportTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reportFile() {
+        final File report = MetricsReport.reportFile(new File("target/cucumber-report/Test.json"));
+        assertEquals(new File("target/cucumber-report/Test.metrics.json"), report);
+    }
+
+    @Test
+    public void histogram() {
+        final MetricsReport report = new MetricsReport(new File(folder.getRoot(), "metrics.json"), MetricsReportTest.class, false);
+        report.record(MetricsReport.STEP, "a step", 0);
+        report.record(MetricsReport.STEP, "a step", 1500); // 1 microsecond
+        report.record(MetricsReport.STEP, "a step", 3000);
+        report.record(MetricsReport.STEP, "a step", 1000000);
+        report.record(MetricsReport.STEP, "a step", -1); // ignored
+
+        final JsonObject histogram = json(report.toJson()).getAsJsonObject(MetricsReport.STEP).getAsJsonObject("a step");
+        assertEquals(4, histogram.get("count").getAsLong());
+        assertEquals(1004, histogram.get("totalMicros").getAsLong());
+        assertEquals(0, histogram.get("minMicros").getAsLong());
+        assertEquals(251, histogram.get("meanMicros").getAsLong());
+        assertEquals(1, histogram.get("p50Micros").getAsLong()); // upper bound of the bucket
+        assertEquals(1000, histogram.get("p90Micros").getAsLong()); // bounded by the max
+        assertEquals(1000, histogram.get("p99Micros").getAsLong());
+        assertEquals(1000, histogram.get("maxMicros").getAsLong());
+
+        final JsonObject buckets = histogram.getAsJsonObject("buckets");
+        assertEquals(keys("<=0", "<=1", "<=3", "<=1023"), keys(buckets));
+        for (final Map.Entry<String, ?> bucket : buckets.entrySet()) {
+            assertEquals(1, buckets.get(bucket.getKey()).getAsLong());
+        }
+    }
+
+    @Test
+    public void sortedCategoriesAndNames() {
+        final MetricsReport report = new MetricsReport(new File(folder.getRoot(), "metrics.json"), MetricsReportTest.class, false);
+        report.record(MetricsReport.STEP, "b", 1000);
+        report.record(MetricsReport.STEP, "a", 1000);
+        report.record(MetricsReport.GLUE, "loadGlue", 1000);
+        report.record(MetricsReport.HOOK, "before", 1000);
+
+        final JsonObject json = json(report.toJson());
+        assertEquals(keys(MetricsReport.GLUE, MetricsReport.HOOK, MetricsReport.STEP), keys(json));
+        assertEquals(keys("a", "b"), keys(json.getAsJsonObject(MetricsReport.STEP)));
+    }
+
+    @Test
+    public void hugeDurationInTheLastBucket() {
+        final MetricsReport report = new MetricsReport(new File(folder.getRoot(), "metrics.json"), MetricsReportTest.class, false);
+        report.record(MetricsReport.SCENARIO, "long", Long.MAX_VALUE);
+        final JsonObject histogram = json(report.toJson()).getAsJsonObject(MetricsReport.SCENARIO).getAsJsonObject("long");
+        assertEquals(keys("<=" + ((1L << 39) - 1)), keys(histogram.getAsJsonObject("buckets")));
+        assertEquals((1L << 39) - 1, histogram.get("p99Micros").getAsLong()); // bucket bound under the max
+        assertEquals(Long.MAX_VALUE / 1000, histogram.get("maxMicros").getAsLong());
+    }
+
+    @Test
+    public void closeWritesTheReportAndUnregistersTheMBean() throws Exception {
+        final File destination = new File(folder.getRoot(), "nested/metrics.json");
+        final ObjectName name = new ObjectName("cukespace:type=Metrics,name=" + ObjectName.quote(MetricsReportTest.class.getName()));
+        final MetricsReport report = new MetricsReport(destination, MetricsReportTest.class, true);
+        report.record(MetricsReport.MATCH, "a step", 2000);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertEquals(report.toJson(), ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Metrics"));
+
+        report.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        final Reader reader = new InputStreamReader(new FileInputStream(destination), "UTF-8");
+        try {
+            assertEquals(2, new JsonParser().parse(reader).getAsJsonObject()
+                    .getAsJsonObject(MetricsReport.MATCH).getAsJsonObject("a step").get("minMicros").getAsLong());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static JsonObject json(final String json) {
+        return new JsonParser().parse(json).getAsJsonObject();
+    }
+
+    private static List<String> keys(final String... keys) {
+        return Arrays.asList(keys);
+    }
+
+    private static List<String> keys(final JsonObject object) {
+        final List<String> keys = new ArrayList<String>();
+        for (final Map.Entry<String, ?> entry : object.entrySet()) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,153 @@
+package cucumber.runtime.arquillian.runner;
+
+import cucumber.api.java.en.Given;
+import cucumber.runtime.Backend;
+import cucumber.runtime.Runtime;
+import cucumber.runtime.RuntimeOptions;
+import cucumber.runtime.StopWatch;
+import cucumber.runtime.UndefinedStepsTracker;
+import cucumber.runtime.arquillian.backend.ArquillianBackend;
+import cucumber.runtime.arquillian.backend.IndexedGlue;
+import cucumber.runtime.xstream.LocalizedXStreams;
+import gherkin.I18n;
+import gherkin.formatter.Reporter;
+import gherkin.formatter.model.Comment;
+import gherkin.formatter.model.Match;
+import gherkin.formatter.model.Result;
+import gherkin.formatter.model.Scenario;
+import gherkin.formatter.model.Step;
+import gherkin.formatter.model.Tag;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+// the step path of cukespace runtime (step reporter, events, undefined steps tracking) must not allocate more than
+// cucumber-core's runtime using the same glue
+public class CucumberRuntimeAllocationTest {
+    private static final int STEPS_PER_SCENARIO = 10;
+    private static final int WARMUP = 20000;
+    private static final int STEPS = 20000;
+    private static final int ROUNDS = 6;
+    private static final long TOLERANCE = 16; // bytes per step, less than an object
+    private static final Scenario SCENARIO = new Scenario(
+            Collections.<Comment>emptyList(), Collections.<Tag>emptyList(), "Scenario", "allocation", "", 1, "allocation");
+
+    @Test
+    public void noAllocationPerStepBeyondCucumberCore() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(com.sun.management.ThreadMXBean.class.isInstance(threads));
+        final com.sun.management.ThreadMXBean allocations = com.sun.management.ThreadMXBean.class.cast(threads);
+        assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        final StubGlue cukespaceGlue = new StubGlue();
+        final StubGlue cucumberGlue = new StubGlue();
+        final Runtime cukespace = new BaseCukeSpace.CucumberRuntime(null, loader, backend(cukespaceGlue), options());
+        final Runtime cucumber = new Runtime(null, loader, backend(cucumberGlue), options(), StopWatch.SYSTEM,
+                new IndexedGlue(new UndefinedStepsTracker(), new LocalizedXStreams(loader)));
+
+        final Step step = new Step(Collections.<Comment>emptyList(), "Given ", "a step", 1, null, null);
+        final I18n i18n = new I18n("en");
+        final Reporter reporter = new NoopReporter();
+
+        run(cukespace, step, i18n, reporter, WARMUP);
+        run(cucumber, step, i18n, reporter, WARMUP);
+
+        // min of several rounds, alternating which runtime starts, to ignore the noise (jit compilations, tlab refills)
+        long cukespaceBytes = Long.MAX_VALUE;
+        long cucumberBytes = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            if (i % 2 == 0) {
+                cukespaceBytes = Math.min(cukespaceBytes, bytesPerStep(allocations, cukespace, step, i18n, reporter));
+                cucumberBytes = Math.min(cucumberBytes, bytesPerStep(allocations, cucumber, step, i18n, reporter));
+            } else {
+                cucumberBytes = Math.min(cucumberBytes, bytesPerStep(allocations, cucumber, step, i18n, reporter));
+                cukespaceBytes = Math.min(cukespaceBytes, bytesPerStep(allocations, cukespace, step, i18n, reporter));
+            }
+        }
+
+        assertEquals(WARMUP + ROUNDS * STEPS, cukespaceGlue.calls);
+        assertEquals(WARMUP + ROUNDS * STEPS, cucumberGlue.calls);
+        assertTrue("cukespace allocates " + cukespaceBytes + " bytes per step, cucumber-core " + cucumberBytes,
+                cukespaceBytes <= cucumberBytes + TOLERANCE);
+    }
+
+    private static long bytesPerStep(final com.sun.management.ThreadMXBean allocations, final Runtime runtime,
+                                     final Step step, final I18n i18n, final Reporter reporter) {
+        final long thread = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(thread);
+        run(runtime, step, i18n, reporter, STEPS);
+        return (allocations.getThreadAllocatedBytes(thread) - before) / STEPS;
+    }
+
+    // scenarios of STEPS_PER_SCENARIO steps since the runtime collects the results of the running scenario
+    private static void run(final Runtime runtime, final Step step, final I18n i18n, final Reporter reporter, final int steps) {
+        for (int i = 0; i < steps; i += STEPS_PER_SCENARIO) {
+            runtime.buildBackendWorlds(reporter, Collections.<Tag>emptySet(), SCENARIO);
+            for (int j = 0; j < STEPS_PER_SCENARIO; j++) {
+                runtime.runStep("allocation.feature", step, reporter, i18n);
+            }
+            runtime.disposeBackendWorlds("allocation");
+        }
+    }
+
+    private static Collection<Backend> backend(final StubGlue glue) {
+        final Collection<Backend> backends = new ArrayList<Backend>();
+        backends.add(new ArquillianBackend(Collections.<Class<?>>emptyList(), StubGlue.class, glue));
+        return backends;
+    }
+
+    private static RuntimeOptions options() {
+        return new RuntimeOptions(new ArrayList<String>());
+    }
+
+    public static class StubGlue {
+        private int calls;
+
+        @Given("^a step$")
+        public void step() {
+            calls++;
+        }
+    }
+
+    private static class NoopReporter implements Reporter {
+        @Override
+        public void before(final Match match, final Result result) {
+            // no-op
+        }
+
+        @Override
+        public void result(final Result result) {
+            // no-op
+        }
+
+        @Override
+        public void after(final Match match, final Result result) {
+            // no-op
+        }
+
+        @Override
+        public void match(final Match match) {
+            // no-op
+        }
+
+        @Override
+        public void embedding(final String mimeType, final byte[] data) {
+            // no-op
+        }
+
+        @Override
+        public void write(final String text) {
+            // no-op
+        }
+    }
+}
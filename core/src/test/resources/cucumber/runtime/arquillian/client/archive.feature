@@ -0,0 +1,4 @@
+Feature: archive
+
+  Scenario: deployed
+    Given a deployment
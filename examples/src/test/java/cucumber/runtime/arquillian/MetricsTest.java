@@ -0,0 +1,26 @@
+package cucumber.runtime.arquillian;
+
+import cucumber.runtime.arquillian.api.Features;
+import cucumber.runtime.arquillian.api.Glues;
+import cucumber.runtime.arquillian.domain.Belly;
+import cucumber.runtime.arquillian.step.CukeSteps;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.runner.RunWith;
+
+import static org.jboss.shrinkwrap.api.ShrinkWrap.create;
+
+// run with metrics (see arquillian-metrics.xml), timings are written next to the json report and exposed through JMX
+@RunWith(CukeSpace.class)
+@Glues(CukeSteps.class)
+@Features("cucumber/runtime/arquillian/feature/cukes-in-belly.feature")
+public class MetricsTest {
+    @Deployment
+    public static Archive<?> createDeployment() {
+        return create(WebArchive.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+            .addClasses(Belly.class);
+    }
+}
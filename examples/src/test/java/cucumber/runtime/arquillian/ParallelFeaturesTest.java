@@ -0,0 +1,26 @@
+package cucumber.runtime.arquillian;
+
+import cucumber.runtime.arquillian.api.Features;
+import cucumber.runtime.arquillian.api.Glues;
+import cucumber.runtime.arquillian.domain.Belly;
+import cucumber.runtime.arquillian.step.CukeSteps;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.runner.RunWith;
+
+import static org.jboss.shrinkwrap.api.ShrinkWrap.create;
+
+// features are spread over featureThreads (see arquillian-parallel.xml), steps are in a glue class to get an instance per thread
+@RunWith(CukeSpace.class)
+@Glues(CukeSteps.class)
+@Features({ "cucumber/runtime/arquillian/feature/cukes-in-belly.feature", "features/cukes-in-belly.feature" })
+public class ParallelFeaturesTest {
+    @Deployment
+    public static Archive<?> createDeployment() {
+        return create(WebArchive.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+            .addClasses(Belly.class);
+    }
+}
@@ -0,0 +1,19 @@
+package cucumber.runtime.arquillian.suite;
+
+import cucumber.runtime.arquillian.domain.Belly;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+
+import static org.jboss.shrinkwrap.api.ShrinkWrap.create;
+
+// children share a single deployment since suiteDeployment is active (see arquillian-suite.xml)
+public abstract class BellySuiteDeployment {
+    @Deployment
+    public static Archive<?> createDeployment() {
+        return create(WebArchive.class)
+            .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+            .addClasses(Belly.class, BellySuiteDeployment.class);
+    }
+}
@@ -0,0 +1,13 @@
+package cucumber.runtime.arquillian.suite;
+
+import cucumber.runtime.arquillian.CukeSpace;
+import cucumber.runtime.arquillian.api.Features;
+import cucumber.runtime.arquillian.api.Glues;
+import cucumber.runtime.arquillian.step.CukeSteps;
+import org.junit.runner.RunWith;
+
+@RunWith(CukeSpace.class)
+@Glues(CukeSteps.class)
+@Features("cucumber/runtime/arquillian/feature/cukes-in-belly.feature")
+public class CukesInBellySuiteTest extends BellySuiteDeployment {
+}
@@ -0,0 +1,19 @@
+Feature: Eat Cukes concurrently
+
+  Background:
+    Given I have a belly
+
+  Scenario: Eating 4 cukes
+    When I eat 4 cukes
+    Then I should have 4 cukes in my belly
+
+  Scenario Outline: Eating <count> cukes
+    When I eat <count> cukes
+    Then I should have <count> cukes in my belly
+
+    Examples:
+      | count |
+      | 1     |
+      | 2     |
+      | 3     |
+      | 5     |
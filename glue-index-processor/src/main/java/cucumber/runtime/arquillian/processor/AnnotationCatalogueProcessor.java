@@ -0,0 +1,167 @@
+package cucumber.runtime.arquillian.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Used to build cukespace-core (not registered as a service): writes META-INF/cukespace/annotation-catalogue.properties
+ * with the cucumber-java annotations of the compilation classpath per language and the cucumber-java version they
+ * come from so cukespace knows them without scanning cucumber.api at runtime.
+ */
+@SupportedAnnotationTypes("*")
+public class AnnotationCatalogueProcessor extends AbstractProcessor {
+    public static final String CATALOGUE = "META-INF/cukespace/annotation-catalogue.properties";
+
+    private static final String API = "cucumber/api/java/";
+    private static final String POM_PROPERTIES = "META-INF/maven/info.cukes/cucumber-java/pom.properties";
+
+    private boolean written;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> types, final RoundEnvironment roundEnv) {
+        if (!written) {
+            written = true;
+            try {
+                write();
+            } catch (final IOException e) { // cukespace will scan
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Can't write " + CATALOGUE + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private void write() throws IOException {
+        final URL hook = getClass().getClassLoader().getResource(API + "Before.class");
+        if (hook == null || !"jar".equals(hook.getProtocol())) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "No cucumber-java jar in the classpath, no " + CATALOGUE);
+            return;
+        }
+
+        final Set<String> hooks = new TreeSet<String>();
+        final Map<String, Set<String>> byLanguage = new TreeMap<String, Set<String>>();
+        final Properties catalogue = new Properties();
+        final JarFile jar;
+        try {
+            jar = new JarFile(new File(JarURLConnection.class.cast(hook.openConnection()).getJarFileURL().toURI()));
+        } catch (final URISyntaxException e) {
+            throw new IOException(e.getMessage());
+        }
+        try {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (!name.startsWith(API) || !name.endsWith(".class") || name.contains("$")) {
+                    continue;
+                }
+
+                final String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                final TypeElement type = processingEnv.getElementUtils().getTypeElement(className);
+                if (type == null || type.getKind() != ElementKind.ANNOTATION_TYPE) {
+                    continue;
+                }
+
+                final String relative = name.substring(API.length());
+                final int slash = relative.indexOf('/');
+                if (slash < 0) {
+                    hooks.add(className);
+                } else if (relative.indexOf('/', slash + 1) < 0) {
+                    final String language = relative.substring(0, slash);
+                    Set<String> annotations = byLanguage.get(language);
+                    if (annotations == null) {
+                        annotations = new TreeSet<String>();
+                        byLanguage.put(language, annotations);
+                    }
+                    annotations.add(className);
+                }
+            }
+
+            final JarEntry pom = jar.getJarEntry(POM_PROPERTIES);
+            if (pom != null) {
+                final Properties properties = new Properties();
+                final InputStream stream = jar.getInputStream(pom);
+                try {
+                    properties.load(stream);
+                } finally {
+                    stream.close();
+                }
+                catalogue.setProperty("version", properties.getProperty("version", "unknown"));
+            }
+        } finally {
+            jar.close();
+        }
+
+        catalogue.setProperty("hooks", join(hooks));
+        catalogue.setProperty("languages", join(byLanguage.keySet()));
+        for (final Map.Entry<String, Set<String>> language : byLanguage.entrySet()) {
+            catalogue.setProperty("language." + language.getKey(), join(language.getValue()));
+        }
+
+        final OutputStream out = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", CATALOGUE).openOutputStream();
+        try {
+            store(catalogue, "cucumber-java annotations, generated by " + getClass().getName(), out);
+        } finally {
+            out.close();
+        }
+    }
+
+    // Properties#store without its date comment and with sorted entries so the same classpath gives the same bytes
+    private static void store(final Properties properties, final String comment, final OutputStream out) throws IOException {
+        final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        properties.store(stored, null);
+
+        final List<String> entries = new ArrayList<String>();
+        for (final String line : stored.toString("ISO-8859-1").split("\r?\n")) {
+            if (!line.isEmpty() && !line.startsWith("#")) { // an entry is on a single line, escaped by store
+                entries.add(line);
+            }
+        }
+        Collections.sort(entries);
+
+        final StringBuilder builder = new StringBuilder("#").append(comment).append('\n');
+        for (final String entry : entries) {
+            builder.append(entry).append('\n');
+        }
+        out.write(builder.toString().getBytes("ISO-8859-1"));
+    }
+
+    private static String join(final Set<String> values) {
+        final StringBuilder builder = new StringBuilder();
+        for (final String value : values) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package cucumber.runtime.arquillian.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writes META-INF/cukespace/glue-index with the glue classes of the compiled sources per package
+ * (the classes cucumber JavaBackend would find scanning this package), all the compiled types per package
+ * and the cucumber annotations the glues use.
+ * Cukes in Space! reads it instead of scanning the jar/folder containing it for @CucumberOptions(glue) when
+ * the index knows all the classes of that jar/folder (a partial compilation makes it scan).
+ */
+@SupportedAnnotationTypes("*")
+public class GlueIndexProcessor extends AbstractProcessor {
+    public static final String INDEX = "META-INF/cukespace/glue-index";
+
+    private static final String STEP_DEF_ANNOTATION = "cucumber.runtime.java.StepDefAnnotation";
+    private static final Set<String> HOOKS = new HashSet<String>(Arrays.asList("cucumber.api.java.Before", "cucumber.api.java.After"));
+
+    private final Map<String, Set<String>> gluesByPackage = new TreeMap<String, Set<String>>();
+    private final Map<String, Set<String>> typesByPackage = new TreeMap<String, Set<String>>();
+    private final Set<String> annotations = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> types, final RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!typesByPackage.isEmpty()) {
+                write();
+            }
+        } else {
+            for (final TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+                scan(type);
+            }
+        }
+        return false; // other processors can use the same annotations
+    }
+
+    private void scan(final TypeElement type) {
+        for (final TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            scan(nested);
+        }
+
+        final Elements elements = processingEnv.getElementUtils();
+        final String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+        values(typesByPackage, packageName).add(elements.getBinaryName(type).toString());
+        if (!isInstantiable(type)) {
+            return;
+        }
+
+        // like JavaBackend: public methods, inherited ones included, registered for the class declaring them
+        for (final ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            for (final AnnotationMirror annotation : method.getAnnotationMirrors()) {
+                final TypeElement annotationType = TypeElement.class.cast(annotation.getAnnotationType().asElement());
+                if (isCucumberAnnotation(annotationType)) {
+                    annotations.add(annotationType.getQualifiedName().toString());
+                    values(gluesByPackage, packageName).add(elements.getBinaryName(TypeElement.class.cast(method.getEnclosingElement())).toString());
+                }
+            }
+        }
+    }
+
+    private static Set<String> values(final Map<String, Set<String>> byPackage, final String packageName) {
+        Set<String> values = byPackage.get(packageName);
+        if (values == null) {
+            values = new TreeSet<String>();
+            byPackage.put(packageName, values);
+        }
+        return values;
+    }
+
+    private void write() {
+        final Properties index = new Properties();
+        index.setProperty("version", "2");
+        index.setProperty("annotations", join(annotations));
+        for (final Map.Entry<String, Set<String>> glues : gluesByPackage.entrySet()) {
+            index.setProperty("glues." + glues.getKey(), join(glues.getValue()));
+        }
+        for (final Map.Entry<String, Set<String>> types : typesByPackage.entrySet()) {
+            index.setProperty("types." + types.getKey(), join(types.getValue()));
+        }
+
+        try {
+            final OutputStream out = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX).openOutputStream();
+            try {
+                index.store(out, "generated by " + getClass().getName());
+            } finally {
+                out.close();
+            }
+        } catch (final IOException e) { // the classpath will be scanned
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Can't write " + INDEX + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isCucumberAnnotation(final TypeElement annotationType) {
+        if (HOOKS.contains(annotationType.getQualifiedName().toString())) {
+            return true;
+        }
+        for (final AnnotationMirror meta : annotationType.getAnnotationMirrors()) {
+            if (STEP_DEF_ANNOTATION.equals(TypeElement.class.cast(meta.getAnnotationType().asElement()).getQualifiedName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // cucumber Utils#isInstantiable
+    private static boolean isInstantiable(final TypeElement type) {
+        final Set<Modifier> modifiers = type.getModifiers();
+        return type.getKind() == ElementKind.CLASS
+                && modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.ABSTRACT)
+                && (type.getNestingKind() == NestingKind.TOP_LEVEL || modifiers.contains(Modifier.STATIC));
+    }
+
+    private static String join(final Set<String> values) {
+        final StringBuilder builder = new StringBuilder();
+        final Iterator<String> it = values.iterator();
+        while (it.hasNext()) {
+            builder.append(it.next());
+            if (it.hasNext()) {
+                builder.append(',');
+            }
+        }
+        return builder.toString();
+    }
+}